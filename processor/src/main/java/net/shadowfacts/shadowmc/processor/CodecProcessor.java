@@ -0,0 +1,226 @@
+package net.shadowfacts.shadowmc.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates {@code *_NBTCodec} classes for {@code @AutoSerializeNBT} types and {@code *_PacketCodec} classes for
+ * {@code PacketBase} subclasses, which ShadowMC prefers over scanning the classes at runtime.
+ *
+ * Codecs are only generated for classes whose serialized fields are accessible from the same package and not final,
+ * anything else keeps using the runtime path. So do packets with {@code @CompactPacket} fields.
+ *
+ * Supported options:
+ * <ul>
+ *     <li>{@code shadowmc.nbt.extraTypes}: Comma separated list of additional types that have an NBT serializer
+ *     registered at runtime with {@code AutoNBTSerializer.registerSerializer}</li>
+ *     <li>{@code shadowmc.packet.extraTypes}: Comma separated list of additional types that have a packet handler
+ *     registered at runtime with {@code PacketBase.addHandlers}</li>
+ * </ul>
+ *
+ * The processor is published as {@code net.shadowfacts:ShadowMC-processor}, mods enable it by adding it to the compile
+ * classpath next to ShadowMC, e.g. {@code compileOnly group: "net.shadowfacts", name: "ShadowMC-processor"}, where
+ * javac finds it through {@code META-INF/services}.
+ *
+ * @author shadowfacts
+ */
+public class CodecProcessor extends AbstractProcessor {
+
+	static final String AUTO_SERIALIZE_NBT = "net.shadowfacts.shadowmc.nbt.AutoSerializeNBT";
+	static final String PACKET_BASE = "net.shadowfacts.shadowmc.network.PacketBase";
+	static final String COMPACT_PACKET = "net.shadowfacts.shadowmc.network.CompactPacket";
+
+	static final String EXTRA_TYPES_OPTION = "shadowmc.nbt.extraTypes";
+	static final String PACKET_EXTRA_TYPES_OPTION = "shadowmc.packet.extraTypes";
+
+	@Override
+	public Set<String> getSupportedAnnotationTypes() {
+		return Collections.singleton("*");
+	}
+
+	@Override
+	public Set<String> getSupportedOptions() {
+		return new HashSet<>(Arrays.asList(EXTRA_TYPES_OPTION, PACKET_EXTRA_TYPES_OPTION));
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		Set<String> extraTypes = getTypesOption(EXTRA_TYPES_OPTION);
+		Set<String> packetExtraTypes = getTypesOption(PACKET_EXTRA_TYPES_OPTION);
+
+		TypeElement packetBase = processingEnv.getElementUtils().getTypeElement(PACKET_BASE);
+
+		for (TypeElement type : ElementFilter.typesIn(collectTypes(roundEnv.getRootElements()))) {
+			if (type.getKind() != ElementKind.CLASS) continue;
+
+			List<VariableElement> nbtFields = getNBTFields(type);
+			if (!nbtFields.isEmpty()) {
+				new NBTCodecWriter(processingEnv, type, nbtFields, extraTypes).write(this);
+			}
+
+			if (packetBase != null && !type.getModifiers().contains(Modifier.ABSTRACT) && isSubclass(type, packetBase)) {
+				new PacketCodecWriter(processingEnv, type, getPacketFields(type), packetExtraTypes).write(this);
+			}
+		}
+
+		return false;
+	}
+
+	private Set<String> getTypesOption(String option) {
+		Set<String> types = new HashSet<>();
+		String value = processingEnv.getOptions().get(option);
+		if (value != null) {
+			for (String s : value.split(",")) {
+				if (!s.trim().isEmpty()) types.add(s.trim());
+			}
+		}
+		return types;
+	}
+
+	private List<Element> collectTypes(Set<? extends Element> roots) {
+		List<Element> types = new ArrayList<>();
+		for (Element e : roots) {
+			collectTypes(e, types);
+		}
+		return types;
+	}
+
+	private void collectTypes(Element e, List<Element> types) {
+		if (e instanceof TypeElement) {
+			types.add(e);
+			for (Element enclosed : e.getEnclosedElements()) {
+				collectTypes(enclosed, types);
+			}
+		}
+	}
+
+	private boolean isSubclass(TypeElement type, TypeElement superType) {
+		TypeMirror erased = processingEnv.getTypeUtils().erasure(type.asType());
+		TypeMirror erasedSuper = processingEnv.getTypeUtils().erasure(superType.asType());
+		return !type.equals(superType) && processingEnv.getTypeUtils().isSubtype(erased, erasedSuper);
+	}
+
+	/**
+	 * Same selection as {@code SerializationPlan}: declared, non-static fields that are annotated or whose class is
+	 */
+	private List<VariableElement> getNBTFields(TypeElement type) {
+		boolean all = hasAnnotation(type, AUTO_SERIALIZE_NBT);
+		List<VariableElement> fields = new ArrayList<>();
+		for (VariableElement f : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+			if (f.getModifiers().contains(Modifier.STATIC)) continue;
+			if (all || hasAnnotation(f, AUTO_SERIALIZE_NBT)) {
+				fields.add(f);
+			}
+		}
+		return fields;
+	}
+
+	/**
+	 * Same selection as {@code PacketBase}: declared fields that aren't final, static or transient
+	 */
+	private List<VariableElement> getPacketFields(TypeElement type) {
+		List<VariableElement> fields = new ArrayList<>();
+		for (VariableElement f : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+			Set<Modifier> modifiers = f.getModifiers();
+			if (!modifiers.contains(Modifier.FINAL) && !modifiers.contains(Modifier.STATIC) && !modifiers.contains(Modifier.TRANSIENT)) {
+				fields.add(f);
+			}
+		}
+		return fields;
+	}
+
+	static boolean hasAnnotation(Element e, String annotation) {
+		return getAnnotation(e, annotation) != null;
+	}
+
+	static AnnotationMirror getAnnotation(Element e, String annotation) {
+		for (AnnotationMirror mirror : e.getAnnotationMirrors()) {
+			if (((TypeElement)mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotation)) {
+				return mirror;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return If generated code in the same package can access the type and all of the fields
+	 */
+	boolean isAccessible(TypeElement type, List<VariableElement> fields) {
+		for (Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+			if (e.getModifiers().contains(Modifier.PRIVATE)) {
+				note(type, "%s is private, skipping codec generation", e.getSimpleName());
+				return false;
+			}
+		}
+		for (VariableElement f : fields) {
+			if (f.getModifiers().contains(Modifier.PRIVATE)) {
+				note(f, "%s is private, skipping codec generation for %s", f.getSimpleName(), type.getQualifiedName());
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * {@code pkg.Outer.Inner} becomes {@code Outer_Inner} so the runtime can derive it from the binary name
+	 */
+	static String flatName(TypeElement type) {
+		List<String> names = new ArrayList<>();
+		for (Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+			names.add(0, e.getSimpleName().toString());
+		}
+		return String.join("_", names);
+	}
+
+	static String packageName(TypeElement type) {
+		Element e = type;
+		while (e.getKind() != ElementKind.PACKAGE) {
+			e = e.getEnclosingElement();
+		}
+		return e.toString();
+	}
+
+	void writeSource(TypeElement origin, String qualifiedName, String source) {
+		try {
+			JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, origin);
+			try (Writer writer = file.openWriter()) {
+				writer.write(source);
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Couldn't write " + qualifiedName + ": " + e.getMessage(), origin);
+		}
+	}
+
+	void error(Element e, String msg, Object... args) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, String.format(msg, args), e);
+	}
+
+	void note(Element e, String msg, Object... args) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, String.format(msg, args), e);
+	}
+
+}
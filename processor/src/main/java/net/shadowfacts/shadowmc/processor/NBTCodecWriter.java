@@ -0,0 +1,247 @@
+package net.shadowfacts.shadowmc.processor;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.Types;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the {@code *_NBTCodec} class for an {@code @AutoSerializeNBT} type.
+ *
+ * Serializers that aren't written directly are looked up whenever the codec is instantiated, which
+ * {@code AutoNBTSerializer} does again after {@code registerSerializer}.
+ *
+ * @author shadowfacts
+ */
+class NBTCodecWriter {
+
+	private static final String LAZY_NBT = "net.shadowfacts.shadowmc.nbt.LazyNBT";
+
+	/**
+	 * Types written with {@code NBTTagCompound} methods directly, {setter, getter}
+	 */
+	private static final Map<String, String[]> direct = new HashMap<>();
+
+	/**
+	 * Types that have a built-in serializer in {@code AutoNBTSerializer}
+	 */
+	private static final Set<String> registered = new HashSet<>(Arrays.asList(
+			"net.minecraft.nbt.NBTBase",
+			"net.minecraft.item.ItemStack",
+			"net.minecraft.item.ItemStack[]",
+			"net.minecraft.util.EnumFacing",
+			"net.minecraft.util.math.BlockPos",
+			"net.shadowfacts.shadowmc.util.RedstoneMode",
+			"net.minecraft.block.Block",
+			"net.minecraft.item.Item",
+			"net.minecraftforge.fluids.FluidStack",
+			"net.minecraftforge.fluids.Fluid",
+			"net.shadowfacts.shadowmc.fluid.FluidTank",
+			"net.shadowfacts.shadowmc.fluid.CreativeFluidTank"
+	));
+
+	/**
+	 * Element types that {@code CollectionSerializers} packs without needing a registered serializer
+	 */
+	private static final Set<String> packed = new HashSet<>(Arrays.asList(
+			"java.lang.Integer",
+			"java.lang.Short",
+			"java.lang.Character",
+			"java.lang.Float",
+			"java.lang.Byte",
+			"java.lang.Boolean",
+			"java.lang.Long",
+			"java.lang.Double",
+			"java.lang.String",
+			"net.minecraft.util.math.BlockPos"
+	));
+
+	static {
+		direct.put("byte", new String[]{"setByte", "getByte"});
+		direct.put("short", new String[]{"setShort", "getShort"});
+		direct.put("int", new String[]{"setInteger", "getInteger"});
+		direct.put("long", new String[]{"setLong", "getLong"});
+		direct.put("float", new String[]{"setFloat", "getFloat"});
+		direct.put("double", new String[]{"setDouble", "getDouble"});
+		direct.put("boolean", new String[]{"setBoolean", "getBoolean"});
+		direct.put("java.lang.String", new String[]{"setString", "getString"});
+		direct.put("byte[]", new String[]{"setByteArray", "getByteArray"});
+		direct.put("int[]", new String[]{"setIntArray", "getIntArray"});
+		direct.put("net.minecraft.nbt.NBTTagCompound", new String[]{"setTag", "getCompoundTag"});
+	}
+
+	private final ProcessingEnvironment env;
+	private final TypeElement type;
+	private final List<VariableElement> fields;
+	private final Set<String> extraTypes;
+
+	NBTCodecWriter(ProcessingEnvironment env, TypeElement type, List<VariableElement> fields, Set<String> extraTypes) {
+		this.env = env;
+		this.type = type;
+		this.fields = fields;
+		this.extraTypes = extraTypes;
+	}
+
+	void write(CodecProcessor processor) {
+		boolean valid = true;
+		for (VariableElement f : fields) {
+			if (!isSupported(f.asType(), false)) {
+				processor.error(f, "No NBT serializer for %s %s, register one and add the type to -A%s", f.asType(), f.getSimpleName(), CodecProcessor.EXTRA_TYPES_OPTION);
+				valid = false;
+			}
+		}
+		Set<Integer> ids = new HashSet<>();
+		for (VariableElement f : fields) {
+			int id = id(f);
+			if (id >= 0 && !ids.add(id)) {
+				processor.error(f, "Duplicate AutoNBT id %d for %s", id, f.getSimpleName());
+				valid = false;
+			}
+		}
+		if (!valid || !processor.isAccessible(type, fields)) return;
+
+		for (VariableElement f : fields) {
+			if (f.getModifiers().contains(Modifier.FINAL)) {
+				processor.note(f, "%s is final, skipping codec generation for %s", f.getSimpleName(), type.getQualifiedName());
+				return;
+			}
+		}
+
+		String pkg = CodecProcessor.packageName(type);
+		String name = CodecProcessor.flatName(type) + "_NBTCodec";
+		String target = type.getQualifiedName().toString();
+
+		StringBuilder s = new StringBuilder();
+		if (!pkg.isEmpty()) {
+			s.append("package ").append(pkg).append(";\n\n");
+		}
+		s.append("@javax.annotation.Generated(\"").append(CodecProcessor.class.getName()).append("\")\n");
+		s.append("@SuppressWarnings(\"unchecked\")\n");
+		s.append("public final class ").append(name).append(" implements net.shadowfacts.shadowmc.nbt.NBTCodec<").append(target).append("> {\n\n");
+
+		boolean hasSerializers = false;
+		for (VariableElement f : fields) {
+			String fieldType = typeName(f);
+			if (!direct.containsKey(fieldType)) {
+				hasSerializers = true;
+				s.append("\tprivate final net.shadowfacts.shadowlib.util.Pair<net.shadowfacts.shadowmc.nbt.NBTSerializer<").append(fieldType).append(">, net.shadowfacts.shadowmc.nbt.NBTDeserializer<").append(fieldType).append(">> ")
+						.append(f.getSimpleName()).append("Serializers = net.shadowfacts.shadowmc.nbt.AutoNBTSerializer.getSerializersFor(");
+				if (isContainer(f.asType())) {
+					s.append(target).append(".class, \"").append(f.getSimpleName()).append("\");\n");
+				} else {
+					s.append("net.shadowfacts.mirror.Mirror.of(").append(fieldType).append(".class));\n");
+				}
+			}
+		}
+
+		if (hasSerializers) s.append("\n");
+
+		s.append("\t@Override\n");
+		s.append("\tpublic void serialize(").append(target).append(" instance, net.minecraft.nbt.NBTTagCompound tag) {\n");
+		for (VariableElement f : fields) {
+			String fieldType = typeName(f);
+			String key = "\"" + key(f) + "\"";
+			if (direct.containsKey(fieldType)) {
+				s.append("\t\ttag.").append(direct.get(fieldType)[0]).append("(").append(key).append(", instance.").append(f.getSimpleName()).append(");\n");
+			} else {
+				s.append("\t\t").append(f.getSimpleName()).append("Serializers.getLeft().serialize(tag, ").append(key).append(", instance.").append(f.getSimpleName()).append(");\n");
+			}
+		}
+		s.append("\t}\n\n");
+
+		s.append("\t@Override\n");
+		s.append("\tpublic void deserialize(").append(target).append(" instance, net.minecraft.nbt.NBTTagCompound tag) {\n");
+		for (VariableElement f : fields) {
+			String fieldType = typeName(f);
+			String key = id(f) >= 0 ? "net.shadowfacts.shadowmc.nbt.CodecHelper.key(tag, \"" + key(f) + "\", \"" + f.getSimpleName() + "\")" : "\"" + key(f) + "\"";
+			if (direct.containsKey(fieldType)) {
+				s.append("\t\tinstance.").append(f.getSimpleName()).append(" = tag.").append(direct.get(fieldType)[1]).append("(").append(key).append(");\n");
+			} else {
+				s.append("\t\tinstance.").append(f.getSimpleName()).append(" = ").append(f.getSimpleName()).append("Serializers.getRight().deserialize(tag, ").append(key).append(");\n");
+			}
+		}
+		s.append("\t}\n\n");
+		s.append("}\n");
+
+		processor.writeSource(type, pkg.isEmpty() ? name : pkg + "." + name, s.toString());
+	}
+
+	/**
+	 * Mirrors the runtime resolution: a registered serializer for the raw type, or a parameterized collection, map or
+	 * {@code LazyNBT} whose type arguments are supported
+	 */
+	private boolean isSupported(TypeMirror type, boolean element) {
+		if (type.getKind() == TypeKind.WILDCARD) {
+			TypeMirror bound = ((WildcardType)type).getExtendsBound();
+			return bound != null && isSupported(bound, element);
+		}
+		String name = env.getTypeUtils().erasure(type).toString();
+		if (direct.containsKey(name) || registered.contains(name) || extraTypes.contains(name)) return true;
+		if (element && (packed.contains(name) || isEnum(type))) return true;
+		if (isContainer(type)) {
+			List<? extends TypeMirror> args = ((DeclaredType)type).getTypeArguments();
+			if (args.isEmpty()) return false;
+			boolean lazy = env.getTypeUtils().erasure(type).toString().equals(LAZY_NBT);
+			for (TypeMirror arg : args) {
+				if (!isSupported(arg, !lazy)) return false;
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return If the serializers depend on the type arguments, in which case they're resolved from the field
+	 */
+	private boolean isContainer(TypeMirror type) {
+		if (type.getKind() != TypeKind.DECLARED) return false;
+		Types types = env.getTypeUtils();
+		TypeMirror erased = types.erasure(type);
+		return erased.toString().equals(LAZY_NBT) ||
+				types.isAssignable(erased, types.erasure(env.getElementUtils().getTypeElement("java.util.Collection").asType())) ||
+				types.isAssignable(erased, types.erasure(env.getElementUtils().getTypeElement("java.util.Map").asType()));
+	}
+
+	private boolean isEnum(TypeMirror type) {
+		return type.getKind() == TypeKind.DECLARED && ((DeclaredType)type).asElement().getKind() == ElementKind.ENUM;
+	}
+
+	/**
+	 * @return The {@code id} of the field's {@code @AutoSerializeNBT}, -1 if there is none
+	 */
+	private int id(VariableElement f) {
+		AnnotationMirror annotation = CodecProcessor.getAnnotation(f, CodecProcessor.AUTO_SERIALIZE_NBT);
+		if (annotation == null) return -1;
+		for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> e : annotation.getElementValues().entrySet()) {
+			if (e.getKey().getSimpleName().contentEquals("id")) {
+				return (Integer)e.getValue().getValue();
+			}
+		}
+		return -1;
+	}
+
+	private String key(VariableElement f) {
+		int id = id(f);
+		return id >= 0 ? Integer.toString(id) : f.getSimpleName().toString();
+	}
+
+	private String typeName(VariableElement f) {
+		return env.getTypeUtils().erasure(f.asType()).toString();
+	}
+
+}
@@ -0,0 +1,174 @@
+package net.shadowfacts.shadowmc.processor;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the {@code *_PacketCodec} class for a {@code PacketBase} subclass.
+ *
+ * Field types without a built-in handler look up the handler registered in {@code PacketBase} whenever the codec is
+ * instantiated, which {@code PacketBase} does again after {@code addHandlers}. Field types that have no handler at all
+ * are compile errors, unless the packet writes its own payload.
+ *
+ * @author shadowfacts
+ */
+class PacketCodecWriter {
+
+	/**
+	 * Types written directly, {write statement, read expression} with {@code %s} as the value
+	 */
+	private static final Map<String, String[]> direct = new HashMap<>();
+
+	/**
+	 * Types that have a built-in handler in {@code PacketBase} but aren't written directly
+	 */
+	private static final Set<String> registered = new HashSet<>(Arrays.asList(
+			"net.minecraft.util.text.ITextComponent",
+			"net.shadowfacts.shadowmc.util.Vector3d",
+			"java.util.UUID",
+			"net.minecraft.util.EnumHand"
+	));
+
+	static {
+		direct.put("byte", new String[]{"buf.writeByte(%s);", "buf.readByte()"});
+		direct.put("short", new String[]{"buf.writeShort(%s);", "buf.readShort()"});
+		direct.put("int", new String[]{"buf.writeInt(%s);", "buf.readInt()"});
+		direct.put("long", new String[]{"buf.writeLong(%s);", "buf.readLong()"});
+		direct.put("float", new String[]{"buf.writeFloat(%s);", "buf.readFloat()"});
+		direct.put("boolean", new String[]{"buf.writeBoolean(%s);", "buf.readBoolean()"});
+		direct.put("char", new String[]{"buf.writeChar(%s);", "buf.readChar()"});
+		direct.put("java.lang.String", new String[]{"net.minecraftforge.fml.common.network.ByteBufUtils.writeUTF8String(buf, %s);", "net.minecraftforge.fml.common.network.ByteBufUtils.readUTF8String(buf)"});
+		direct.put("net.minecraft.nbt.NBTTagCompound", new String[]{"net.minecraftforge.fml.common.network.ByteBufUtils.writeTag(buf, %s);", "net.minecraftforge.fml.common.network.ByteBufUtils.readTag(buf)"});
+		direct.put("net.minecraft.item.ItemStack", new String[]{"net.minecraftforge.fml.common.network.ByteBufUtils.writeItemStack(buf, %s);", "net.minecraftforge.fml.common.network.ByteBufUtils.readItemStack(buf)"});
+		direct.put("net.minecraft.util.math.BlockPos", new String[]{"buf.writeBlockPos(%s);", "buf.readBlockPos()"});
+	}
+
+	private final ProcessingEnvironment env;
+	private final TypeElement type;
+	private final List<VariableElement> fields;
+	private final Set<String> extraTypes;
+
+	PacketCodecWriter(ProcessingEnvironment env, TypeElement type, List<VariableElement> fields, Set<String> extraTypes) {
+		this.env = env;
+		this.type = type;
+		this.fields = fields;
+		this.extraTypes = extraTypes;
+	}
+
+	void write(CodecProcessor processor) {
+		if (writesPayload(type)) {
+			processor.note(type, "%s writes its own payload, skipping codec generation", type.getQualifiedName());
+			return;
+		}
+		boolean valid = true;
+		for (VariableElement f : fields) {
+			String fieldType = typeName(f);
+			if (!direct.containsKey(fieldType) && !registered.contains(fieldType) && !extraTypes.contains(fieldType)) {
+				processor.error(f, "No packet handler for %s %s, register one and add the type to -A%s", f.asType(), f.getSimpleName(), CodecProcessor.PACKET_EXTRA_TYPES_OPTION);
+				valid = false;
+			}
+		}
+		if (!valid || !processor.isAccessible(type, fields)) return;
+		if (CodecProcessor.hasAnnotation(type, CodecProcessor.COMPACT_PACKET)) {
+			processor.note(type, "%s uses @CompactPacket, skipping codec generation", type.getQualifiedName());
+			return;
+		}
+		for (VariableElement f : fields) {
+			if (CodecProcessor.hasAnnotation(f, CodecProcessor.COMPACT_PACKET)) {
+				processor.note(f, "%s uses @CompactPacket, skipping codec generation for %s", f.getSimpleName(), type.getQualifiedName());
+				return;
+			}
+		}
+
+		String pkg = CodecProcessor.packageName(type);
+		String name = CodecProcessor.flatName(type) + "_PacketCodec";
+		String target = type.getQualifiedName().toString();
+
+		StringBuilder s = new StringBuilder();
+		if (!pkg.isEmpty()) {
+			s.append("package ").append(pkg).append(";\n\n");
+		}
+		s.append("@javax.annotation.Generated(\"").append(CodecProcessor.class.getName()).append("\")\n");
+		s.append("@SuppressWarnings(\"unchecked\")\n");
+		s.append("public final class ").append(name).append(" implements net.shadowfacts.shadowmc.network.PacketCodec<").append(target).append("> {\n\n");
+
+		boolean hasHandlers = false;
+		for (VariableElement f : fields) {
+			String fieldType = typeName(f);
+			if (!direct.containsKey(fieldType)) {
+				hasHandlers = true;
+				s.append("\tprivate final net.shadowfacts.shadowlib.util.Pair<net.shadowfacts.shadowmc.network.PacketBase.Reader, net.shadowfacts.shadowmc.network.PacketBase.Writer> ")
+						.append(f.getSimpleName()).append("Handlers = net.shadowfacts.shadowmc.network.PacketBase.getHandlers(net.shadowfacts.mirror.Mirror.of(").append(fieldType).append(".class));\n");
+			}
+		}
+
+		if (hasHandlers) s.append("\n");
+
+		s.append("\t@Override\n");
+		s.append("\tpublic void write(").append(target).append(" packet, net.minecraft.network.PacketBuffer buf) {\n");
+		for (VariableElement f : fields) {
+			String fieldType = typeName(f);
+			String value = "packet." + f.getSimpleName();
+			if (direct.containsKey(fieldType)) {
+				s.append("\t\t").append(String.format(direct.get(fieldType)[0], value)).append("\n");
+			} else {
+				s.append("\t\t").append(f.getSimpleName()).append("Handlers.getRight().write(").append(value).append(", buf);\n");
+			}
+		}
+		s.append("\t}\n\n");
+
+		s.append("\t@Override\n");
+		s.append("\tpublic void read(").append(target).append(" packet, net.minecraft.network.PacketBuffer buf) {\n");
+		for (VariableElement f : fields) {
+			String fieldType = typeName(f);
+			String value = "packet." + f.getSimpleName();
+			if (direct.containsKey(fieldType)) {
+				s.append("\t\t").append(value).append(" = ").append(direct.get(fieldType)[1]).append(";\n");
+			} else {
+				s.append("\t\t").append(value).append(" = (").append(fieldType).append(")").append(f.getSimpleName()).append("Handlers.getLeft().read(buf);\n");
+			}
+		}
+		s.append("\t}\n\n");
+		s.append("}\n");
+
+		processor.writeSource(type, pkg.isEmpty() ? name : pkg + "." + name, s.toString());
+	}
+
+	/**
+	 * @return If the packet or one of its superclasses below {@code PacketBase} overrides {@code writePayload} or
+	 * {@code readPayload}, in which case the fields aren't encoded by a codec
+	 */
+	private boolean writesPayload(TypeElement type) {
+		for (TypeElement t = type; t != null && !t.getQualifiedName().contentEquals(CodecProcessor.PACKET_BASE); t = superclass(t)) {
+			for (ExecutableElement m : ElementFilter.methodsIn(t.getEnclosedElements())) {
+				String name = m.getSimpleName().toString();
+				if ((name.equals("writePayload") || name.equals("readPayload")) && m.getParameters().size() == 1) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static TypeElement superclass(TypeElement type) {
+		TypeMirror superclass = type.getSuperclass();
+		return superclass.getKind() == TypeKind.DECLARED ? (TypeElement)((DeclaredType)superclass).asElement() : null;
+	}
+
+	private String typeName(VariableElement f) {
+		return env.getTypeUtils().erasure(f.asType()).toString();
+	}
+
+}
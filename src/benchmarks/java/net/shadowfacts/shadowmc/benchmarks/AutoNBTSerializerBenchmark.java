@@ -0,0 +1,112 @@
+package net.shadowfacts.shadowmc.benchmarks;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.math.BlockPos;
+import net.minecraftforge.fml.common.network.ByteBufUtils;
+import net.shadowfacts.shadowmc.nbt.AutoNBTSerializer;
+import net.shadowfacts.shadowmc.nbt.AutoSerializeNBT;
+import net.shadowfacts.shadowmc.nbt.NBTStreamReader;
+import net.shadowfacts.shadowmc.nbt.NBTStreamWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run with {@code -Pjmh="AutoNBT -jvmArgsAppend -Dshadowmc.autonbt.generate=false"} to measure the reflective plans
+ * instead of the generated codecs.
+ *
+ * @author shadowfacts
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AutoNBTSerializerBenchmark {
+
+	private Machine machine;
+	private NBTTagCompound tag;
+	private ByteBuf buf;
+	private ByteBuf encoded;
+
+	@Setup
+	public void setup() {
+		machine = new Machine();
+		for (int i = 0; i < 64; i++) {
+			machine.positions.add(new BlockPos(i, 64, -i));
+		}
+		tag = AutoNBTSerializer.serialize(Machine.class, machine);
+		buf = Unpooled.buffer(4096);
+		encoded = Unpooled.buffer(4096);
+		ByteBufUtils.writeTag(encoded, tag);
+	}
+
+	@Benchmark
+	public NBTTagCompound serialize() {
+		return AutoNBTSerializer.serialize(Machine.class, machine);
+	}
+
+	@Benchmark
+	public Machine deserialize() {
+		Machine m = new Machine();
+		AutoNBTSerializer.deserialize(Machine.class, m, tag);
+		return m;
+	}
+
+	/**
+	 * What {@link net.shadowfacts.shadowmc.network.PacketUpdateTE} used to do: build the tag, then encode it
+	 */
+	@Benchmark
+	public ByteBuf writeTree() {
+		buf.clear();
+		ByteBufUtils.writeTag(buf, AutoNBTSerializer.serialize(Machine.class, machine));
+		return buf;
+	}
+
+	@Benchmark
+	public ByteBuf writeStream() {
+		buf.clear();
+		NBTStreamWriter out = new NBTStreamWriter(buf);
+		out.beginCompound();
+		AutoNBTSerializer.serialize(Machine.class, machine, out);
+		out.endCompound();
+		return buf;
+	}
+
+	@Benchmark
+	public Machine readTree() {
+		encoded.readerIndex(0);
+		Machine m = new Machine();
+		AutoNBTSerializer.deserialize(Machine.class, m, ByteBufUtils.readTag(encoded));
+		return m;
+	}
+
+	@Benchmark
+	public Machine readStream() {
+		encoded.readerIndex(0);
+		Machine m = new Machine();
+		NBTStreamReader in = new NBTStreamReader(encoded);
+		in.beginCompound();
+		AutoNBTSerializer.deserialize(Machine.class, m, in, new NBTTagCompound());
+		return m;
+	}
+
+	@AutoSerializeNBT
+	public static class Machine {
+		private int energy = 12000;
+		private int progress = 57;
+		private float efficiency = 0.85f;
+		private boolean active = true;
+		private long lastTick = 123456789L;
+		private String owner = "shadowfacts";
+		private BlockPos target = new BlockPos(100, 64, -200);
+		private int[] sideConfig = {0, 1, 2, 1, 0, 2};
+		private List<BlockPos> positions = new ArrayList<>();
+	}
+
+}
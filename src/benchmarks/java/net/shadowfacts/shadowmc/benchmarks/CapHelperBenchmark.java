@@ -0,0 +1,98 @@
+package net.shadowfacts.shadowmc.benchmarks;
+
+import net.minecraft.util.EnumFacing;
+import net.minecraftforge.common.capabilities.Capability;
+import net.shadowfacts.shadowmc.capability.CapHelper;
+import net.shadowfacts.shadowmc.capability.CapHolder;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Capability lookups through the dispatch tables, compared to the name keyed maps and reflective {@link Field#get}
+ * used before them
+ *
+ * @author shadowfacts
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CapHelperBenchmark {
+
+	private Capability<Runnable> present;
+	private Capability<Comparable> absent;
+	private Holder holder;
+
+	private Map<String, Map<EnumFacing, Field>> fields;
+
+	@Setup
+	public void setup() throws ReflectiveOperationException {
+		present = Stubs.capability(Runnable.class);
+		absent = Stubs.capability(Comparable.class);
+		holder = new Holder();
+
+		Field f = Holder.class.getDeclaredField("handler");
+		f.setAccessible(true);
+		Map<EnumFacing, Field> sides = new EnumMap<>(EnumFacing.class);
+		for (EnumFacing facing : EnumFacing.values()) {
+			sides.put(facing, f);
+		}
+		fields = new HashMap<>();
+		fields.put(Runnable.class.getName(), sides);
+	}
+
+	@Benchmark
+	public boolean hasCapability() {
+		return CapHelper.hasCapability(present, EnumFacing.NORTH, Holder.class, holder);
+	}
+
+	@Benchmark
+	public Runnable getCapability() {
+		return CapHelper.getCapability(present, EnumFacing.NORTH, Holder.class, holder, (cap, side) -> null);
+	}
+
+	@Benchmark
+	public Runnable getCapabilityNullSide() {
+		return CapHelper.getCapability(present, null, Holder.class, holder, (cap, side) -> null);
+	}
+
+	@Benchmark
+	public Comparable getCapabilityMiss() {
+		return CapHelper.getCapability(absent, EnumFacing.NORTH, Holder.class, holder, (cap, side) -> null);
+	}
+
+	@Benchmark
+	public boolean hasCapabilityReflective() {
+		return getField(present, EnumFacing.NORTH) != null;
+	}
+
+	@Benchmark
+	public Runnable getCapabilityReflective() throws IllegalAccessException {
+		Field f = getField(present, EnumFacing.NORTH);
+		return f != null ? (Runnable)f.get(holder) : null;
+	}
+
+	@Benchmark
+	public Comparable getCapabilityMissReflective() throws IllegalAccessException {
+		Field f = getField(absent, EnumFacing.NORTH);
+		return f != null ? (Comparable)f.get(holder) : null;
+	}
+
+	private Field getField(Capability<?> capability, EnumFacing facing) {
+		Map<EnumFacing, Field> sides = fields.get(capability.getName());
+		return sides != null ? sides.get(facing) : null;
+	}
+
+	public static class Holder {
+		@CapHolder(capabilities = Runnable.class, internal = true)
+		private Runnable handler = () -> {};
+	}
+
+}
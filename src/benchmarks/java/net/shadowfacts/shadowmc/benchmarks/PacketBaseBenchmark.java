@@ -0,0 +1,121 @@
+package net.shadowfacts.shadowmc.benchmarks;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.network.PacketBuffer;
+import net.minecraft.util.math.BlockPos;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
+import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
+import net.shadowfacts.mirror.Mirror;
+import net.shadowfacts.mirror.MirrorField;
+import net.shadowfacts.shadowmc.network.PacketBase;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Modifier;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes and decodes a packet shaped like {@code PacketUpdateTE} on a reused heap buffer, compared to the Mirror scan
+ * done for every packet before codec plans were cached
+ *
+ * @author shadowfacts
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PacketBaseBenchmark {
+
+	private TestPacket packet;
+	private ByteBuf buf;
+	private ByteBuf encoded;
+
+	@Setup
+	public void setup() {
+		NBTTagCompound tag = new NBTTagCompound();
+		tag.setInteger("energy", 12000);
+		tag.setString("owner", "shadowfacts");
+		tag.setIntArray("sides", new int[]{0, 1, 2, 1, 0, 2});
+		packet = new TestPacket(0, new BlockPos(100, 64, -200), tag, 42L, "machine");
+
+		buf = Unpooled.buffer(512);
+		encoded = Unpooled.buffer(512);
+		packet.toBytes(encoded);
+	}
+
+	@Benchmark
+	public ByteBuf encode() {
+		buf.clear();
+		packet.toBytes(buf);
+		return buf;
+	}
+
+	@Benchmark
+	public TestPacket decode() {
+		TestPacket p = new TestPacket();
+		p.fromBytes(encoded.resetReaderIndex());
+		return p;
+	}
+
+	@Benchmark
+	public ByteBuf encodeMirror() {
+		buf.clear();
+		PacketBuffer packetBuf = new PacketBuffer(buf);
+		Mirror.of(TestPacket.class)
+				.declaredFields()
+				.filter(PacketBaseBenchmark::accepts)
+				.forEach(f -> {
+					f.setAccessible(true);
+					PacketBase.getHandlers(f).getRight().write(f.get(packet), packetBuf);
+				});
+		return buf;
+	}
+
+	@Benchmark
+	public TestPacket decodeMirror() {
+		TestPacket p = new TestPacket();
+		PacketBuffer packetBuf = new PacketBuffer(encoded.resetReaderIndex());
+		Mirror.of(TestPacket.class)
+				.declaredFields()
+				.filter(PacketBaseBenchmark::accepts)
+				.forEach(f -> {
+					f.setAccessible(true);
+					f.set(p, PacketBase.getHandlers(f).getLeft().read(packetBuf));
+				});
+		return p;
+	}
+
+	private static boolean accepts(MirrorField f) {
+		return !f.isFinal() && !f.isStatic() && !f.hasModifier(Modifier.TRANSIENT) && PacketBase.getHandlers(f) != null;
+	}
+
+	public static class TestPacket extends PacketBase<TestPacket, IMessage> {
+
+		public int dim;
+		public BlockPos pos;
+		public NBTTagCompound tag;
+		public long time;
+		public String name;
+
+		public TestPacket() {
+		}
+
+		public TestPacket(int dim, BlockPos pos, NBTTagCompound tag, long time, String name) {
+			this.dim = dim;
+			this.pos = pos;
+			this.tag = tag;
+			this.time = time;
+			this.name = name;
+		}
+
+		@Override
+		public IMessage onMessage(TestPacket message, MessageContext ctx) {
+			return null;
+		}
+
+	}
+
+}
@@ -0,0 +1,79 @@
+package net.shadowfacts.shadowmc.benchmarks;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.util.math.BlockPos;
+import net.shadowfacts.shadowmc.ShadowMCConfig;
+import net.shadowfacts.shadowmc.network.PacketUpdateTE;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU cost of {@link PacketUpdateTE}s carrying inventories of different sizes at different compression thresholds.
+ * The encoded size of the packet is printed when each trial is set up, so it can be read against the time per operation.
+ *
+ * @author shadowfacts
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PacketCompressionBenchmark {
+
+	/**
+	 * Number of item stacks in the inventory, roughly 40 bytes each
+	 */
+	@Param({"8", "64", "512", "1280"})
+	public int slots;
+
+	@Param({"-1", "256", "1024", "4096", "16384"})
+	public int threshold;
+
+	private PacketUpdateTE packet;
+	private ByteBuf buf;
+	private ByteBuf encoded;
+
+	@Setup
+	public void setup() {
+		ShadowMCConfig.compressionThreshold = threshold;
+
+		NBTTagList items = new NBTTagList();
+		for (int i = 0; i < slots; i++) {
+			NBTTagCompound item = new NBTTagCompound();
+			item.setString("id", i % 3 == 0 ? "minecraft:iron_ingot" : "minecraft:cobblestone");
+			item.setByte("Count", (byte)(i % 64 + 1));
+			item.setShort("Damage", (short)0);
+			item.setShort("Slot", (short)i);
+			items.appendTag(item);
+		}
+		NBTTagCompound tag = new NBTTagCompound();
+		tag.setTag("Items", items);
+		tag.setInteger("energy", 12000);
+		packet = new PacketUpdateTE(0, new BlockPos(100, 64, -200), tag);
+
+		buf = Unpooled.buffer(64 * 1024);
+		encoded = Unpooled.buffer(64 * 1024);
+		packet.toBytes(encoded);
+		System.out.println(String.format("%n%d slots, threshold %d: %d bytes", slots, threshold, encoded.readableBytes()));
+	}
+
+	@Benchmark
+	public ByteBuf encode() {
+		buf.clear();
+		packet.toBytes(buf);
+		return buf;
+	}
+
+	@Benchmark
+	public PacketUpdateTE decode() {
+		PacketUpdateTE p = new PacketUpdateTE();
+		p.fromBytes(encoded.resetReaderIndex());
+		return p;
+	}
+
+}
@@ -0,0 +1,111 @@
+package net.shadowfacts.shadowmc.benchmarks;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.shadowfacts.shadowmc.anvil.AnvilManager;
+import net.shadowfacts.shadowmc.anvil.AnvilRecipe;
+import net.shadowfacts.shadowmc.recipe.Recipe;
+import net.shadowfacts.shadowmc.recipe.RecipeManager;
+import org.openjdk.jmh.annotations.*;
+import org.w3c.dom.Element;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups in {@link RecipeManager} and {@link AnvilManager} with {@link #recipes} registered, the looked up recipe is
+ * the last one registered so linear scans hit their worst case
+ *
+ * @author shadowfacts
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecipeBenchmark {
+
+	@Param({"10000"})
+	public int recipes;
+
+	private RecipeManager<ItemStack, TestRecipe> manager;
+	private ItemStack last;
+	private ItemStack missing;
+
+	@Setup
+	public void setup() {
+		Item[] items = Stubs.items(recipes / 16 + 1);
+		manager = new RecipeManager<>(TestRecipe.class);
+		AnvilManager.getInstance().getRecipes().clear();
+
+		for (int i = 0; i < recipes; i++) {
+			ItemStack input = Stubs.stack(items[i / 16], i % 16);
+			manager.register(new TestRecipe(input));
+			AnvilManager.getInstance().addRecipe(input, input, input, 1);
+		}
+
+		last = Stubs.stack(items[(recipes - 1) / 16], (recipes - 1) % 16);
+		missing = Stubs.stack(new Item(), 0);
+	}
+
+	@TearDown
+	public void tearDown() {
+		AnvilManager.getInstance().getRecipes().clear();
+	}
+
+	@Benchmark
+	public Optional<TestRecipe> get() {
+		return manager.get(last);
+	}
+
+	@Benchmark
+	public boolean isInput() {
+		return manager.isInput(last);
+	}
+
+	@Benchmark
+	public boolean isInputMiss() {
+		return manager.isInput(missing);
+	}
+
+	@Benchmark
+	public Optional<AnvilRecipe> anvilGetRecipe() {
+		return AnvilManager.getInstance().getRecipe(last, last);
+	}
+
+	public static class TestRecipe extends Recipe<ItemStack> {
+
+		private ItemStack input;
+
+		public TestRecipe() {
+		}
+
+		public TestRecipe(ItemStack input) {
+			this.input = input;
+		}
+
+		@Override
+		public boolean matches(ItemStack machine) {
+			return machine.getItem() == input.getItem() && machine.getItemDamage() == input.getItemDamage();
+		}
+
+		@Override
+		public List<ItemStack> getInputs() {
+			return Collections.singletonList(input);
+		}
+
+		@Override
+		public ItemStack getOutput(ItemStack machine) {
+			return input;
+		}
+
+		@Override
+		public void fromXML(Element e) {
+		}
+
+	}
+
+}
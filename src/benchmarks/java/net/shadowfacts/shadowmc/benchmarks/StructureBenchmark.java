@@ -0,0 +1,65 @@
+package net.shadowfacts.shadowmc.benchmarks;
+
+import net.minecraft.util.ResourceLocation;
+import net.shadowfacts.shadowmc.structure.Structure;
+import net.shadowfacts.shadowmc.structure.StructureManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads a generated cube structure from JSON, the same path used for structures in mod assets
+ *
+ * @author shadowfacts
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StructureBenchmark {
+
+	/**
+	 * Edge length of the structure
+	 */
+	@Param({"8", "32"})
+	public int size;
+
+	private static final ResourceLocation NAME = new ResourceLocation("shadowmc", "benchmark");
+
+	private byte[] json;
+
+	@Setup
+	public void setup() {
+		StringBuilder builder = new StringBuilder("{\"blocks\":[");
+		for (int y = 0; y < size; y++) {
+			if (y > 0) builder.append(',');
+			builder.append('[');
+			for (int x = 0; x < size; x++) {
+				if (x > 0) builder.append(',');
+				builder.append('[');
+				for (int z = 0; z < size; z++) {
+					if (z > 0) builder.append(',');
+					if ((x + y + z) % 2 == 0) {
+						builder.append("{\"id\":\"minecraft:cobblestone\",\"properties\":{},\"lootId\":\"\",\"inventory\":[]}");
+					} else {
+						builder.append("{\"id\":\"minecraft:chest\",\"properties\":{\"facing\":\"north\"},\"lootId\":\"minecraft:chests/simple_dungeon\",\"inventory\":[{\"item\":\"minecraft:diamond\",\"amount\":3,\"slot\":0}]}");
+					}
+				}
+				builder.append(']');
+			}
+			builder.append(']');
+		}
+		builder.append("],\"entities\":[]}");
+		json = builder.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public Structure load() {
+		return StructureManager.INSTANCE.load(NAME, new ByteArrayInputStream(json));
+	}
+
+}
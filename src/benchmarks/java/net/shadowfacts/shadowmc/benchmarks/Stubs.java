@@ -0,0 +1,45 @@
+package net.shadowfacts.shadowmc.benchmarks;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.common.capabilities.Capability;
+
+import java.lang.reflect.Constructor;
+
+/**
+ * Lightweight stand-ins for the Minecraft objects the benchmarks need, none of them require a bootstrapped game.
+ *
+ * @author shadowfacts
+ */
+class Stubs {
+
+	/**
+	 * @return {@code count} distinct items that are never registered
+	 */
+	static Item[] items(int count) {
+		Item[] items = new Item[count];
+		for (int i = 0; i < count; i++) {
+			items[i] = new Item();
+		}
+		return items;
+	}
+
+	static ItemStack stack(Item item, int meta) {
+		return new ItemStack(item, 1, meta);
+	}
+
+	/**
+	 * Capabilities are normally only created by Forge's {@code CapabilityManager}
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> Capability<T> capability(Class<T> type) {
+		try {
+			Constructor<?> constructor = Capability.class.getDeclaredConstructors()[0];
+			constructor.setAccessible(true);
+			return (Capability<T>)constructor.newInstance(type.getName(), null, null);
+		} catch (ReflectiveOperationException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+}
@@ -0,0 +1,56 @@
+package net.shadowfacts.shadowmc.benchmarks;
+
+import net.shadowfacts.shadowmc.ui.style.stylesheet.Stylesheet;
+import net.shadowfacts.shadowmc.ui.style.stylesheet.StylesheetParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author shadowfacts
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StylesheetParserBenchmark {
+
+	/**
+	 * Number of rule blocks in the sheet, each with 3 rules
+	 */
+	@Param({"100", "2000"})
+	public int blocks;
+
+	private String sheet;
+
+	@Setup
+	public void setup() {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < blocks; i++) {
+			switch (i % 3) {
+				case 0:
+					builder.append("#id").append(i).append(" {\n");
+					break;
+				case 1:
+					builder.append(".class").append(i).append(" {\n");
+					break;
+				default:
+					builder.append("type").append(i).append(" {\n");
+			}
+			builder.append("\t// comment\n");
+			builder.append("\thorizontal-layout: left\n");
+			builder.append("\tmargin-left: ").append(i % 20).append('\n');
+			builder.append("\torientation: vertical !important\n");
+			builder.append("}\n\n");
+		}
+		sheet = builder.toString();
+	}
+
+	@Benchmark
+	public Stylesheet parse() {
+		return StylesheetParser.parse(sheet);
+	}
+
+}
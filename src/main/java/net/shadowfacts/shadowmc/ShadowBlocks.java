@@ -2,6 +2,7 @@ package net.shadowfacts.shadowmc;
 
 import net.shadowfacts.shadowmc.block.ModBlocks;
 import net.shadowfacts.shadowmc.structure.creator.BlockStructureCreator;
+import net.shadowfacts.shadowmc.structure.creator.TileEntityStructureCreator;
 
 /**
  * @author shadowfacts
@@ -14,6 +15,7 @@ public class ShadowBlocks extends ModBlocks {
 	public void init() {
 		if (ShadowMCConfig.enableStructureCreator) {
 			structureCreator = register(new BlockStructureCreator());
+			TileEntityStructureCreator.registerGUIActions();
 		}
 	}
 
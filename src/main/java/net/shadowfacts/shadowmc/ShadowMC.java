@@ -8,6 +8,7 @@ import net.minecraftforge.fml.common.SidedProxy;
 import net.minecraftforge.fml.common.event.FMLInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLPreInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLServerStartingEvent;
+import net.minecraftforge.fml.common.event.FMLServerStoppedEvent;
 import net.minecraftforge.fml.common.network.NetworkRegistry;
 import net.minecraftforge.fml.common.network.simpleimpl.SimpleNetworkWrapper;
 import net.minecraftforge.fml.relauncher.Side;
@@ -17,6 +18,8 @@ import net.shadowfacts.shadowmc.command.CommandHandler;
 import net.shadowfacts.shadowmc.config.ForgeConfigAdapter;
 import net.shadowfacts.shadowmc.event.ShadowMCEventHandler;
 import net.shadowfacts.shadowmc.flair.FlairManager;
+import net.shadowfacts.shadowmc.network.TEUpdateBatcher;
+import net.shadowfacts.shadowmc.network.TEUpdateQueue;
 import net.shadowfacts.shadowmc.oxygen.OxygenHandler;
 import net.shadowfacts.shadowmc.oxygen.OxygenProvider;
 import net.shadowfacts.shadowmc.oxygen.OxygenReceiver;
@@ -26,6 +29,7 @@ import net.shadowfacts.shadowmc.oxygen.impl.OxygenReceiverImpl;
 import net.shadowfacts.shadowmc.proxy.CommonProxy;
 import net.shadowfacts.shadowmc.structure.creator.TESRStructureCreator;
 import net.shadowfacts.shadowmc.structure.creator.TileEntityStructureCreator;
+import net.shadowfacts.shadowmc.tileentity.TESyncScheduler;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -88,6 +92,13 @@ public class ShadowMC {
 		event.registerServerCommand(CommandHandler.instance);
 	}
 
+	@Mod.EventHandler
+	public void serverStopped(FMLServerStoppedEvent event) {
+		TEUpdateQueue.SERVER.clear();
+		TESyncScheduler.clear();
+		TEUpdateBatcher.clear();
+	}
+
 	@SideOnly(Side.CLIENT)
 	private void preInitClient() {
 		if (ShadowMCConfig.enableStructureCreator) {
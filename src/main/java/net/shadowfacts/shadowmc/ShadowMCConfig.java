@@ -3,6 +3,7 @@ package net.shadowfacts.shadowmc;
 import net.minecraftforge.common.config.Configuration;
 import net.shadowfacts.config.Config;
 import net.shadowfacts.config.ConfigManager;
+import net.shadowfacts.shadowmc.tileentity.TESyncScheduler;
 
 import java.io.File;
 
@@ -20,12 +21,25 @@ public class ShadowMCConfig {
 	@Config.Prop(description = "Enable the iron nugget (will only be created if no other iron nugget is present)")
 	public static boolean enableNuggetIron = true;
 
+	@Config.Prop(category = "sync", description = "Minimum number of ticks between two syncs of the same tile entity (20 ticks = 1 second)")
+	public static int minSyncInterval = 1;
+
+	@Config.Prop(category = "sync", description = "Per tile entity class overrides for minSyncInterval, in the format fully.qualified.ClassName=ticks")
+	public static String[] syncIntervals = new String[0];
+
+	@Config.Prop(category = "sync", description = "Milliseconds per tick that may be spent applying received tile entity updates, the rest is applied in the next tick")
+	public static int updateApplyBudget = 5;
+
+	@Config.Prop(category = "network", description = "ShadowMC packets with a payload of at least this many bytes are compressed, -1 to disable. Dedicated servers already compress packets above their network-compression-threshold.")
+	public static int compressionThreshold = 1024;
+
 	public static void init(File configDir) {
 		config = new Configuration(new File(configDir, "shadowfacts/ShadowMC.cfg"));
 	}
 
 	public static void load() {
 		ConfigManager.load(ShadowMCConfig.class, Configuration.class, config);
+		TESyncScheduler.loadIntervals(syncIntervals);
 		if (config.hasChanged()) config.save();
 	}
 
@@ -1,11 +1,13 @@
 package net.shadowfacts.shadowmc.block;
 
+import net.minecraft.block.Block;
 import net.minecraft.block.material.Material;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.IBlockAccess;
 import net.minecraft.world.World;
+import net.shadowfacts.shadowmc.tileentity.BaseTileEntity;
 
 import javax.annotation.Nonnull;
 
@@ -32,4 +34,22 @@ public abstract class BlockTE<TE extends TileEntity> extends BlockBase implement
 	@Override
 	public abstract Class<TE> getTileEntityClass();
 
+	@Override
+	public void neighborChanged(IBlockState state, World world, BlockPos pos, Block block) {
+		super.neighborChanged(state, world, pos, block);
+		TileEntity te = world.getTileEntity(pos);
+		if (te instanceof BaseTileEntity) {
+			((BaseTileEntity)te).onNeighborChanged();
+		}
+	}
+
+	@Override
+	public void onNeighborChange(IBlockAccess world, BlockPos pos, BlockPos neighbor) {
+		super.onNeighborChange(world, pos, neighbor);
+		TileEntity te = world.getTileEntity(pos);
+		if (te instanceof BaseTileEntity) {
+			((BaseTileEntity)te).onNeighborTileChanged(neighbor);
+		}
+	}
+
 }
@@ -3,12 +3,15 @@ package net.shadowfacts.shadowmc.capability;
 import net.minecraft.util.EnumFacing;
 import net.minecraftforge.common.capabilities.Capability;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Map;
-import java.util.Set;
 import java.util.function.BiFunction;
 
 /**
@@ -16,71 +19,109 @@ import java.util.function.BiFunction;
  */
 public class CapHelper {
 
-	private static final Set<Class<?>> searched = new HashSet<>();
-	private static final Map<String, Map<EnumFacing, Map<Class<?>, Field>>> caps = new HashMap<>();
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
 
-	public static boolean hasCapability(Capability<?> capability, EnumFacing facing, Class<?> clazz, Object object) {
-		if (!searched.contains(clazz)) {
-			search(clazz);
-		}
-		if (caps.containsKey(capability.getName())) {
-			Map<EnumFacing, Map<Class<?>, Field>> map = caps.get(capability.getName());
-			if (map.containsKey(facing)) {
-				Map<Class<?>, Field> map2 = map.get(facing);
-				return map2.containsKey(clazz);
-			}
+	/**
+	 * Dispatch table per class, built once from its {@link CapHolder} fields
+	 */
+	private static final ClassValue<DispatchTable> tables = new ClassValue<DispatchTable>() {
+		@Override
+		protected DispatchTable computeValue(Class<?> type) {
+			return new DispatchTable(search(type));
 		}
-		return false;
+	};
+
+	public static boolean hasCapability(Capability<?> capability, EnumFacing facing, Class<?> clazz, Object object) {
+		return tables.get(clazz).get(capability, facing) != null;
 	}
 
+	@SuppressWarnings("unchecked")
 	public static <T> T getCapability(Capability<T> capability, EnumFacing facing, Class<?> clazz, Object object, BiFunction<Capability, EnumFacing, T> defaultFunc) {
-		if (!searched.contains(clazz)) {
-			search(clazz);
-		}
-
-		try {
-			if (caps.containsKey(capability.getName())) {
-				Map<EnumFacing, Map<Class<?>, Field>> map = caps.get(capability.getName());
-				if (map.containsKey(facing)) {
-					Map<Class<?>, Field> map2 = map.get(facing);
-					if (map2.containsKey(clazz)) {
-						Field f = map2.get(clazz);
-						f.setAccessible(true);
-						return (T)f.get(object);
-					}
-				}
+		MethodHandle getter = tables.get(clazz).get(capability, facing);
+		if (getter != null) {
+			try {
+				return (T)(Object)getter.invokeExact(object);
+			} catch (Throwable t) {
+				throw new RuntimeException("Couldn't get capability " + capability.getName() + " from " + clazz.getName(), t);
 			}
-		} catch (ReflectiveOperationException e) {
-			e.printStackTrace();
 		}
 
 		return defaultFunc.apply(capability, facing);
 	}
 
-	private static void search(Class<?> clazz) {
+	/**
+	 * @return Capability name -> getter per {@link DispatchTable#index(EnumFacing) side index}
+	 */
+	private static Map<String, MethodHandle[]> search(Class<?> clazz) {
+		Map<String, MethodHandle[]> map = new HashMap<>();
 		for (Field f : clazz.getDeclaredFields()) {
 			if (!Modifier.isStatic(f.getModifiers()) && f.isAnnotationPresent(CapHolder.class)) {
+				f.setAccessible(true);
+				MethodHandle getter;
+				try {
+					getter = MethodHandles.lookup().unreflectGetter(f).asType(GETTER_TYPE);
+				} catch (IllegalAccessException e) {
+					throw new RuntimeException("Couldn't access @CapHolder field " + f, e);
+				}
 				CapHolder holder = f.getAnnotation(CapHolder.class);
 				for (Class<?> capClass : holder.capabilities()) {
+					MethodHandle[] sides = map.computeIfAbsent(capClass.getName(), name -> new MethodHandle[DispatchTable.SIDES]);
+					for (EnumFacing facing : holder.sides()) {
+						sides[facing.ordinal()] = getter;
+					}
+					if (holder.internal()) {
+						sides[DispatchTable.NULL_SIDE] = getter;
+					}
+				}
+			}
+		}
+		return map.isEmpty() ? Collections.emptyMap() : map;
+	}
 
-					String name = capClass.getName();
+	/**
+	 * Getters indexed by capability identity and side. Capabilities are matched by name the first time a class is
+	 * queried for them, after that it's an identity lookup and an array access.
+	 */
+	private static class DispatchTable {
 
-					if (!caps.containsKey(name)) {
-						caps.put(name, new HashMap<>());
-					}
+		private static final int NULL_SIDE = EnumFacing.values().length;
+		private static final int SIDES = NULL_SIDE + 1;
+		private static final MethodHandle[] NONE = new MethodHandle[SIDES];
 
-					for (EnumFacing facing : holder.sides()) {
+		private final Map<String, MethodHandle[]> byName;
+		/**
+		 * Copy-on-write, also holds {@link #NONE} for capabilities the class doesn't have so misses are just as cheap
+		 */
+		private volatile Map<Capability<?>, MethodHandle[]> byCapability = Collections.emptyMap();
 
-						if (!caps.get(name).containsKey(facing)) {
-							caps.get(name).put(facing, new HashMap<>());
-						}
+		private DispatchTable(Map<String, MethodHandle[]> byName) {
+			this.byName = byName;
+		}
 
-						caps.get(name).get(facing).put(clazz, f);
-					}
-				}
+		private MethodHandle get(Capability<?> capability, EnumFacing facing) {
+			if (byName.isEmpty()) return null;
+			MethodHandle[] getters = byCapability.get(capability);
+			if (getters == null) {
+				getters = resolve(capability);
+			}
+			return getters[index(facing)];
+		}
+
+		private synchronized MethodHandle[] resolve(Capability<?> capability) {
+			MethodHandle[] getters = byCapability.get(capability);
+			if (getters == null) {
+				getters = byName.getOrDefault(capability.getName(), NONE);
+				Map<Capability<?>, MethodHandle[]> copy = new IdentityHashMap<>(byCapability);
+				copy.put(capability, getters);
+				byCapability = copy;
 			}
+			return getters;
 		}
-		searched.add(clazz);
+
+		private static int index(EnumFacing facing) {
+			return facing == null ? NULL_SIDE : facing.ordinal();
+		}
+
 	}
 
 }
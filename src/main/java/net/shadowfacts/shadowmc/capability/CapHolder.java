@@ -25,4 +25,10 @@ public @interface CapHolder {
 	 */
 	EnumFacing[] sides() default {EnumFacing.DOWN, EnumFacing.UP, EnumFacing.NORTH, EnumFacing.SOUTH, EnumFacing.WEST, EnumFacing.EAST};
 
+	/**
+	 * @return If this capability is also usable for the {@code null} side, which Forge uses for access that isn't
+	 * from a specific side. Off by default, so {@code null} falls through to {@code super.getCapability}.
+	 */
+	boolean internal() default false;
+
 }
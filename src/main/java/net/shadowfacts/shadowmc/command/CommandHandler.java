@@ -23,6 +23,7 @@ public class CommandHandler extends CommandBase {
 		registerSubCommand(CommandHelp.instance);
 		registerSubCommand(CommandGenStructure.instance);
 		registerSubCommand(CommandReloadStructures.instance);
+		registerSubCommand(CommandNetStats.instance);
 	}
 	
 	
@@ -0,0 +1,122 @@
+package net.shadowfacts.shadowmc.command;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import net.minecraft.command.CommandException;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.command.WrongUsageException;
+import net.minecraft.util.text.TextComponentString;
+import net.minecraftforge.fml.common.FMLCommonHandler;
+import net.shadowfacts.shadowmc.network.NetStats;
+import net.shadowfacts.shadowmc.network.TEUpdateQueue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * @author shadowfacts
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class CommandNetStats implements SubCommand {
+
+	public static final CommandNetStats instance = new CommandNetStats();
+
+	private static final String CSV_FILE = "shadowmc-netstats.csv";
+	private static final int TOP = 5;
+	/**
+	 * Needed to change the statistics or write files, showing them is allowed for everyone that can use the command
+	 */
+	private static final int PERMISSION_LEVEL = 2;
+
+	@Override
+	public String getCommandName() {
+		return "netstats";
+	}
+
+	@Override
+	public void handleCommand(ICommandSender sender, String[] args) throws CommandException {
+		if (args.length == 0) {
+			show(sender);
+		} else if (args[0].equals("reset")) {
+			checkPermission(sender);
+			NetStats.reset();
+			sender.addChatMessage(new TextComponentString("Reset network statistics"));
+		} else if (args[0].equals("csv")) {
+			checkPermission(sender);
+			csv(sender, args);
+		} else {
+			throw new WrongUsageException("Unknown option, see /shadow help netstats for more info");
+		}
+	}
+
+	private void checkPermission(ICommandSender sender) throws CommandException {
+		if (!sender.canCommandSenderUseCommand(PERMISSION_LEVEL, "shadow")) {
+			throw new CommandException("commands.generic.permission");
+		}
+	}
+
+	private void show(ICommandSender sender) {
+		List<String> packets = NetStats.summary();
+		if (packets.isEmpty()) {
+			sender.addChatMessage(new TextComponentString("No packets recorded"));
+		}
+		packets.forEach(s -> sender.addChatMessage(new TextComponentString(s)));
+
+		List<String> classes = NetStats.topTileEntityClasses(TOP);
+		if (!classes.isEmpty()) {
+			sender.addChatMessage(new TextComponentString("Top TE classes: " + String.join("; ", classes)));
+			sender.addChatMessage(new TextComponentString("Top TE positions: " + String.join("; ", NetStats.topTileEntityPositions(TOP))));
+		}
+
+		TEUpdateQueue queue = TEUpdateQueue.SERVER;
+		sender.addChatMessage(new TextComponentString(String.format(Locale.ROOT, "Server update queue: %d queued, %d applied in %.1f ms, %d coalesced, %d dropped",
+				queue.getDepth(), queue.getApplied(), queue.getApplyTime() / 1_000_000d, queue.getCoalesced(), queue.getDropped())));
+	}
+
+	private void csv(ICommandSender sender, String[] args) throws CommandException {
+		File file = FMLCommonHandler.instance().getMinecraftServerInstance().getFile(CSV_FILE);
+		if (args.length == 1) {
+			try {
+				NetStats.dumpCSV(file);
+			} catch (IOException e) {
+				throw new CommandException("Couldn't write %s: %s", file, e.getMessage());
+			}
+			sender.addChatMessage(new TextComponentString("Wrote network statistics to " + file));
+		} else if (args[1].equals("off")) {
+			NetStats.setPeriodicDump(null, 0);
+			sender.addChatMessage(new TextComponentString("Stopped writing network statistics"));
+		} else {
+			int seconds;
+			try {
+				seconds = Integer.parseInt(args[1]);
+			} catch (NumberFormatException e) {
+				throw new WrongUsageException("Interval must be an integer!");
+			}
+			if (seconds <= 0) {
+				throw new WrongUsageException("Interval must be positive!");
+			}
+			NetStats.setPeriodicDump(file, seconds);
+			sender.addChatMessage(new TextComponentString("Writing network statistics to " + file + " every " + seconds + " seconds"));
+		}
+	}
+
+	@Override
+	public List<String> addTabCompletionOptions(ICommandSender sender, String[] args) {
+		if (args.length == 2) {
+			return Arrays.asList("reset", "csv");
+		} else if (args.length == 3 && args[1].equals("csv")) {
+			return Arrays.asList("off", "60");
+		}
+		return new ArrayList<>();
+	}
+
+	@Override
+	public void handleHelpRequest(ICommandSender sender, String[] args) {
+		sender.addChatMessage(new TextComponentString("Shows packet counts, sizes and encode/decode times. 'reset' clears them, 'csv' writes them to " + CSV_FILE + ", 'csv <seconds>' does so periodically and 'csv off' stops it."));
+	}
+
+}
@@ -3,14 +3,24 @@ package net.shadowfacts.shadowmc.event;
 import net.minecraft.item.ItemBlock;
 import net.minecraft.item.ItemStack;
 import net.minecraftforge.event.AnvilUpdateEvent;
+import net.minecraftforge.event.world.ChunkWatchEvent;
+import net.minecraftforge.event.world.WorldEvent;
 import net.minecraftforge.fml.client.event.ConfigChangedEvent;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
 import net.minecraftforge.fml.common.gameevent.PlayerEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import net.minecraftforge.fml.common.network.FMLNetworkEvent;
 import net.shadowfacts.shadowmc.ShadowMC;
 import net.shadowfacts.shadowmc.ShadowMCConfig;
 import net.shadowfacts.shadowmc.achievement.AchievementProvider;
 import net.shadowfacts.shadowmc.anvil.AnvilManager;
 import net.shadowfacts.shadowmc.anvil.AnvilRecipe;
+import net.shadowfacts.shadowmc.network.NetStats;
+import net.shadowfacts.shadowmc.network.TEUpdateBatcher;
+import net.shadowfacts.shadowmc.network.TEUpdateQueue;
+import net.shadowfacts.shadowmc.oxygen.impl.OxygenTank;
+import net.shadowfacts.shadowmc.oxygen.network.OxygenNetworkManager;
+import net.shadowfacts.shadowmc.tileentity.TESyncScheduler;
 
 import java.util.Optional;
 
@@ -67,4 +77,49 @@ public class ShadowMCEventHandler {
 		}
 	}
 
+	@SubscribeEvent
+	public void onChunkWatch(ChunkWatchEvent.Watch event) {
+		TESyncScheduler.onChunkWatched(event.getPlayer(), event.getChunk());
+	}
+
+	@SubscribeEvent
+	public void onServerTick(TickEvent.ServerTickEvent event) {
+		if (event.phase == TickEvent.Phase.START) {
+			TEUpdateQueue.SERVER.drain();
+		} else {
+			OxygenTank.flushNotifications();
+			TESyncScheduler.flush();
+			TEUpdateBatcher.flush();
+			NetStats.tick();
+		}
+	}
+
+	@SubscribeEvent
+	public void onWorldTick(TickEvent.WorldTickEvent event) {
+		if (event.phase == TickEvent.Phase.END && !event.world.isRemote) {
+			OxygenNetworkManager.tick(event.world);
+		}
+	}
+
+	@SubscribeEvent
+	public void onWorldUnload(WorldEvent.Unload event) {
+		if (!event.getWorld().isRemote) {
+			OxygenNetworkManager.unload(event.getWorld());
+		}
+	}
+
+	@SubscribeEvent
+	public void onClientDisconnect(FMLNetworkEvent.ClientDisconnectionFromServerEvent event) {
+		TEUpdateQueue.CLIENT.clear();
+	}
+
+	@SubscribeEvent
+	public void onClientTick(TickEvent.ClientTickEvent event) {
+		if (event.phase == TickEvent.Phase.START) {
+			TEUpdateQueue.CLIENT.drain();
+		} else {
+			OxygenTank.flushNotifications();
+		}
+	}
+
 }
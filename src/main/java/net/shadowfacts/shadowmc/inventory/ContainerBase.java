@@ -4,11 +4,15 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.inventory.Container;
+import net.minecraft.inventory.IContainerListener;
 import net.minecraft.inventory.Slot;
 import net.minecraft.item.ItemStack;
 import net.minecraft.util.math.BlockPos;
+import net.shadowfacts.shadowmc.oxygen.OxygenHandler;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * @author shadowfacts
@@ -19,6 +23,43 @@ public class ContainerBase extends Container {
 	@Getter
 	protected BlockPos pos;
 
+	private final List<OxygenSyncTracker> oxygenTrackers = new ArrayList<>();
+
+	/**
+	 * Syncs the handler's stored amount and capacity to the client's copy of the handler
+	 * @param id The first of the 4 window property ids to use
+	 * @param threshold The fraction of the capacity the stored amount has to change by to be sent again
+	 */
+	protected OxygenSyncTracker trackOxygen(OxygenHandler handler, int id, float threshold) {
+		OxygenSyncTracker tracker = new OxygenSyncTracker(handler, id, threshold);
+		oxygenTrackers.add(tracker);
+		return tracker;
+	}
+
+	@Override
+	public void addListener(IContainerListener listener) {
+		super.addListener(listener);
+		for (OxygenSyncTracker tracker : oxygenTrackers) {
+			tracker.sendAll(this, listener);
+		}
+	}
+
+	@Override
+	public void detectAndSendChanges() {
+		super.detectAndSendChanges();
+		for (OxygenSyncTracker tracker : oxygenTrackers) {
+			tracker.detectAndSendChanges(this, listeners);
+		}
+	}
+
+	@Override
+	public void updateProgressBar(int id, int data) {
+		for (OxygenSyncTracker tracker : oxygenTrackers) {
+			if (tracker.updateProgressBar(id, data)) return;
+		}
+		super.updateProgressBar(id, data);
+	}
+
 	@Override
 	public boolean canInteractWith(EntityPlayer player) {
 		return player.getDistanceSq((double) pos.getX() + .5d, (double) pos.getY() + .5d, (double) pos.getZ() + .5d) <= 64;
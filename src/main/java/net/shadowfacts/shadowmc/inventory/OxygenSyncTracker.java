@@ -0,0 +1,112 @@
+package net.shadowfacts.shadowmc.inventory;
+
+import lombok.Getter;
+import net.minecraft.inventory.Container;
+import net.minecraft.inventory.IContainerListener;
+import net.shadowfacts.shadowmc.oxygen.OxygenHandler;
+import net.shadowfacts.shadowmc.oxygen.impl.OxygenHandlerImpl;
+
+import java.util.List;
+
+/**
+ * Syncs the stored amount and capacity of an {@link OxygenHandler} to the players with a container open, through the
+ * container's window properties.
+ *
+ * The stored amount is only sent when it moved by more than the threshold since it was last sent, or when the handler
+ * became full or empty, so a tank that changes a little every tick doesn't send a packet every tick.
+ * Window properties are shorts, so each float uses two property ids starting at the tracker's id.
+ *
+ * @author shadowfacts
+ */
+public class OxygenSyncTracker {
+
+	private final OxygenHandler handler;
+	private final int id;
+	private final float threshold;
+
+	/**
+	 * Server: The values last sent
+	 * Client: The values received
+	 */
+	@Getter
+	private float stored = Float.NaN;
+	@Getter
+	private float capacity = Float.NaN;
+
+	private int receivedBits;
+
+	/**
+	 * @param id The first of the 4 window property ids to use
+	 * @param threshold The fraction of the capacity the stored amount has to change by to be sent again, e.g. 0.01
+	 *                  for a 100 pixel gauge
+	 */
+	public OxygenSyncTracker(OxygenHandler handler, int id, float threshold) {
+		this.handler = handler;
+		this.id = id;
+		this.threshold = threshold;
+	}
+
+	/**
+	 * Server: Sends everything to a new listener
+	 */
+	public void sendAll(Container container, IContainerListener listener) {
+		send(container, listener, id, handler.getStored());
+		send(container, listener, id + 2, handler.getCapacity());
+	}
+
+	/**
+	 * Server: Sends what changed enough to all listeners, called from {@link Container#detectAndSendChanges()}
+	 */
+	public void detectAndSendChanges(Container container, List<IContainerListener> listeners) {
+		float currentCapacity = handler.getCapacity();
+		if (currentCapacity != capacity) {
+			capacity = currentCapacity;
+			for (IContainerListener listener : listeners) {
+				send(container, listener, id + 2, capacity);
+			}
+		}
+
+		float currentStored = handler.getStored();
+		if (currentStored != stored && (Math.abs(currentStored - stored) > threshold * capacity || currentStored <= 0 || currentStored >= capacity || Float.isNaN(stored))) {
+			stored = currentStored;
+			for (IContainerListener listener : listeners) {
+				send(container, listener, id, stored);
+			}
+		}
+	}
+
+	private static void send(Container container, IContainerListener listener, int id, float value) {
+		int bits = Float.floatToIntBits(value);
+		listener.sendProgressBarUpdate(container, id, bits >>> 16);
+		listener.sendProgressBarUpdate(container, id + 1, bits & 0xFFFF);
+	}
+
+	/**
+	 * Client: Handles a window property, called from {@link Container#updateProgressBar(int, int)}
+	 * @return If the property belonged to this tracker
+	 */
+	public boolean updateProgressBar(int property, int data) {
+		if (property < id || property >= id + 4) return false;
+
+//		the high half is always sent first
+		int offset = property - id;
+		if (offset % 2 == 0) {
+			receivedBits = (data & 0xFFFF) << 16;
+			return true;
+		}
+		float value = Float.intBitsToFloat(receivedBits | (data & 0xFFFF));
+		if (offset == 1) {
+			stored = value;
+			if (handler instanceof OxygenHandlerImpl) {
+				((OxygenHandlerImpl)handler).setStored(value);
+			}
+		} else {
+			capacity = value;
+			if (handler instanceof OxygenHandlerImpl) {
+				((OxygenHandlerImpl)handler).setCapacity(value);
+			}
+		}
+		return true;
+	}
+
+}
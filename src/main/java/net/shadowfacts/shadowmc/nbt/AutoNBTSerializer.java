@@ -20,15 +20,26 @@ import net.shadowfacts.shadowmc.fluid.FluidTank;
 import net.shadowfacts.shadowmc.util.LogHelper;
 import net.shadowfacts.shadowmc.util.RedstoneMode;
 
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * @author shadowfacts
  */
 public class AutoNBTSerializer {
 
-	private static Map<MirrorClass, Pair> serializers = new HashMap<>();
+	/**
+	 * Copy-on-write, registering replaces the whole map so lookups from any thread never need to lock
+	 */
+	private static volatile Map<MirrorClass, Pair> serializers = Collections.emptyMap();
+
+	private static Map<Class<?>, NBTSerializer<?>> builtinPrimitives = new HashMap<>();
+
+	private static volatile ClassValue<SerializationPlan> plans = newPlanCache();
 
 	private static LogHelper log = new LogHelper("ShadowMC|AutoNBT");
 
@@ -43,6 +54,11 @@ public class AutoNBTSerializer {
 		registerSerializer(String.class, NBTTagCompound::setString, NBTTagCompound::getString);
 		registerSerializer(byte[].class, NBTTagCompound::setByteArray, NBTTagCompound::getByteArray);
 		registerSerializer(int[].class, NBTTagCompound::setIntArray, NBTTagCompound::getIntArray);
+		registerSerializer(short[].class, AutoNBTSerializer::serializeShortArray, AutoNBTSerializer::deserializeShortArray);
+		registerSerializer(long[].class, AutoNBTSerializer::serializeLongArray, AutoNBTSerializer::deserializeLongArray);
+		registerSerializer(float[].class, AutoNBTSerializer::serializeFloatArray, AutoNBTSerializer::deserializeFloatArray);
+		registerSerializer(double[].class, AutoNBTSerializer::serializeDoubleArray, AutoNBTSerializer::deserializeDoubleArray);
+		registerSerializer(boolean[].class, AutoNBTSerializer::serializeBooleanArray, AutoNBTSerializer::deserializeBooleanArray);
 		registerSerializer(NBTTagCompound.class, NBTTagCompound::setTag, NBTTagCompound::getCompoundTag);
 		registerSerializer(boolean.class, NBTTagCompound::setBoolean, NBTTagCompound::getBoolean);
 		registerSerializer(ItemStack.class, AutoNBTSerializer::serializeItemStack, AutoNBTSerializer::deserializeItemStack);
@@ -56,10 +72,19 @@ public class AutoNBTSerializer {
 		registerSerializer(Fluid.class, AutoNBTSerializer::serializeFluid, AutoNBTSerializer::deserializeFluid);
 		registerSerializer(FluidTank.class, AutoNBTSerializer::serializeFluidTank, AutoNBTSerializer::deserializeFluidTank);
 		registerSerializer(CreativeFluidTank.class, AutoNBTSerializer::serializeCreativeFluidTank, AutoNBTSerializer::deserializeCreativeFluidTank);
+
+		for (Class<?> type : new Class<?>[]{byte.class, short.class, int.class, long.class, float.class, double.class, boolean.class}) {
+			builtinPrimitives.put(type, getSerializerFor(Mirror.of(type)));
+		}
 	}
 
 	public static <T> void registerSerializer(MirrorClass<T> clazz, NBTSerializer<T> serializer, NBTDeserializer<T> deserializer) {
-		serializers.put(clazz, new Pair<>(serializer, deserializer));
+		synchronized (AutoNBTSerializer.class) {
+			Map<MirrorClass, Pair> copy = new HashMap<>(serializers);
+			copy.put(clazz, new Pair<>(serializer, deserializer));
+			serializers = Collections.unmodifiableMap(copy);
+			plans = newPlanCache();
+		}
 	}
 
 	public static <T> void registerSerializer(Class<T> clazz, NBTSerializer<T> serializer, NBTDeserializer<T> deserializer) {
@@ -71,6 +96,35 @@ public class AutoNBTSerializer {
 		return serializers.get(clazz);
 	}
 
+	/**
+	 * Resolves the serializers for a possibly generic type, {@link LazyNBT} holders and parameterized collections and
+	 * maps that don't have a serializer registered for their raw type are handled by {@link CollectionSerializers}.
+	 * @return The serializers, {@code null} if the type isn't supported
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> Pair<NBTSerializer<T>, NBTDeserializer<T>> getSerializersFor(Type type) {
+		Type raw = type instanceof ParameterizedType ? ((ParameterizedType)type).getRawType() : type;
+		if (raw instanceof Class) {
+			Pair<NBTSerializer<T>, NBTDeserializer<T>> pair = getSerializersFor(Mirror.of((Class<T>)raw));
+			if (pair != null) return pair;
+		}
+		if (raw == LazyNBT.class && type instanceof ParameterizedType) {
+			return (Pair)LazyNBT.serializers(((ParameterizedType)type).getActualTypeArguments()[0]);
+		}
+		return (Pair)CollectionSerializers.create(type);
+	}
+
+	/**
+	 * Resolves the serializers for the generic type of a declared field, used by generated codecs
+	 */
+	public static <T> Pair<NBTSerializer<T>, NBTDeserializer<T>> getSerializersFor(Class<?> owner, String field) {
+		try {
+			return getSerializersFor(owner.getDeclaredField(field).getGenericType());
+		} catch (NoSuchFieldException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	public static <T> NBTSerializer<T> getSerializerFor(MirrorClass<T> clazz) {
 		return getSerializersFor(clazz).getLeft();
 	}
@@ -79,42 +133,165 @@ public class AutoNBTSerializer {
 		return getSerializersFor(clazz).getRight();
 	}
 
+	/**
+	 * @return If the given serializer is the default one for the primitive type, which generated codecs inline
+	 */
+	static boolean isBuiltinPrimitive(Class<?> type, NBTSerializer<?> serializer) {
+		return serializer != null && builtinPrimitives.get(type) == serializer;
+	}
+
 	public static NBTTagCompound serialize(Class<?> clazz, Object instance) {
 		return serialize(clazz, instance, new NBTTagCompound());
 	}
 
 	public static NBTTagCompound serialize(Class<?> clazz, Object instance, NBTTagCompound tag) {
-		Mirror.of(clazz)
-				.declaredFields()
-				.isNotStatic()
-				.filter(f -> f.hasAnnotation(AutoSerializeNBT.class) || f.declaringClass().hasAnnotation(AutoSerializeNBT.class))
-				.forEach(f -> {
-					try {
-						NBTSerializer serializer = getSerializerFor(f.type());
-						f.setAccessible(true);
-						serializer.serialize(tag, f.name(), f.get(instance));
-					} catch (Exception e) {
-						log.error("Couldn't serialize %s in %s", f.name(), clazz.getName());
-						e.printStackTrace();
-					}
-				});
+		plans.get(clazz).serialize(instance, tag);
 		return tag;
 	}
 
 	public static void deserialize(Class<?> clazz, Object instance, NBTTagCompound tag) {
-		Mirror.of(clazz)
-				.declaredFields()
-				.isNotStatic()
-				.filter(f -> f.hasAnnotation(AutoSerializeNBT.class) || f.declaringClass().hasAnnotation(AutoSerializeNBT.class))
-				.forEach(f -> {
-					try {
-						NBTDeserializer deserializer = getDeserializerFor(f.type());
-						f.setAccessible(true);
-						f.set(instance, deserializer.deserialize(tag, f.name()));
-					} catch (Exception e) {
-						log.error("Couldn't deserialize %s in %s", f.name(), clazz.getName());
-					}
-				});
+		plans.get(clazz).deserialize(instance, tag);
+	}
+
+	/**
+	 * Deserializes only the fields with the given keys (the field name, or the {@link AutoSerializeNBT#id()} if set),
+	 * fields whose key is included but which are missing from the tag are reset just like they would be by a full
+	 * deserialization.
+	 */
+	public static void deserialize(Class<?> clazz, Object instance, NBTTagCompound tag, Set<String> keys) {
+		plans.get(clazz).deserialize(instance, tag, keys);
+	}
+
+	/**
+	 * Writes the fields straight into the current compound of {@code out}, without building a tag first
+	 */
+	public static void serialize(Class<?> clazz, Object instance, NBTStreamWriter out) {
+		plans.get(clazz).serialize(instance, out);
+	}
+
+	/**
+	 * Reads the remaining entries of the current compound of {@code in}, all entries that don't belong to a primitive
+	 * field are also collected in {@code rest} so the caller can read its own data from it
+	 */
+	public static void deserialize(Class<?> clazz, Object instance, NBTStreamReader in, NBTTagCompound rest) {
+		plans.get(clazz).deserialize(instance, in, rest);
+	}
+
+	/**
+	 * Serializes only the fields marked with {@link AutoSerializeNBT#sync()}
+	 */
+	public static NBTTagCompound serializeSynced(Class<?> clazz, Object instance, NBTTagCompound tag) {
+		plans.get(clazz).serializeSynced(instance, tag);
+		return tag;
+	}
+
+	/**
+	 * Deserializes only the fields marked with {@link AutoSerializeNBT#sync()}
+	 */
+	public static void deserializeSynced(Class<?> clazz, Object instance, NBTTagCompound tag) {
+		plans.get(clazz).deserializeSynced(instance, tag);
+	}
+
+	/**
+	 * Plans are resolved lazily and hold the serializers that were registered at that time, so registering a new
+	 * serializer discards every plan resolved so far.
+	 */
+	private static ClassValue<SerializationPlan> newPlanCache() {
+		return new ClassValue<SerializationPlan>() {
+			@Override
+			protected SerializationPlan computeValue(Class<?> type) {
+				return SerializationPlan.build(type);
+			}
+		};
+	}
+
+	private static void serializeShortArray(NBTTagCompound tag, String name, short[] val) {
+		int[] a = new int[val.length];
+		for (int i = 0; i < val.length; i++) {
+			a[i] = val[i];
+		}
+		tag.setIntArray(name, a);
+	}
+
+	private static short[] deserializeShortArray(NBTTagCompound tag, String name) {
+		int[] a = tag.getIntArray(name);
+		short[] val = new short[a.length];
+		for (int i = 0; i < a.length; i++) {
+			val[i] = (short)a[i];
+		}
+		return val;
+	}
+
+	/**
+	 * There's no long array tag, so longs are stored as pairs of ints
+	 */
+	private static void serializeLongArray(NBTTagCompound tag, String name, long[] val) {
+		int[] a = new int[val.length * 2];
+		for (int i = 0; i < val.length; i++) {
+			a[i * 2] = (int)(val[i] >>> 32);
+			a[i * 2 + 1] = (int)val[i];
+		}
+		tag.setIntArray(name, a);
+	}
+
+	private static long[] deserializeLongArray(NBTTagCompound tag, String name) {
+		int[] a = tag.getIntArray(name);
+		long[] val = new long[a.length / 2];
+		for (int i = 0; i < val.length; i++) {
+			val[i] = ((long)a[i * 2] << 32) | (a[i * 2 + 1] & 0xFFFFFFFFL);
+		}
+		return val;
+	}
+
+	private static void serializeFloatArray(NBTTagCompound tag, String name, float[] val) {
+		int[] a = new int[val.length];
+		for (int i = 0; i < val.length; i++) {
+			a[i] = Float.floatToRawIntBits(val[i]);
+		}
+		tag.setIntArray(name, a);
+	}
+
+	private static float[] deserializeFloatArray(NBTTagCompound tag, String name) {
+		int[] a = tag.getIntArray(name);
+		float[] val = new float[a.length];
+		for (int i = 0; i < a.length; i++) {
+			val[i] = Float.intBitsToFloat(a[i]);
+		}
+		return val;
+	}
+
+	private static void serializeDoubleArray(NBTTagCompound tag, String name, double[] val) {
+		long[] bits = new long[val.length];
+		for (int i = 0; i < val.length; i++) {
+			bits[i] = Double.doubleToRawLongBits(val[i]);
+		}
+		serializeLongArray(tag, name, bits);
+	}
+
+	private static double[] deserializeDoubleArray(NBTTagCompound tag, String name) {
+		long[] bits = deserializeLongArray(tag, name);
+		double[] val = new double[bits.length];
+		for (int i = 0; i < bits.length; i++) {
+			val[i] = Double.longBitsToDouble(bits[i]);
+		}
+		return val;
+	}
+
+	private static void serializeBooleanArray(NBTTagCompound tag, String name, boolean[] val) {
+		byte[] a = new byte[val.length];
+		for (int i = 0; i < val.length; i++) {
+			a[i] = (byte)(val[i] ? 1 : 0);
+		}
+		tag.setByteArray(name, a);
+	}
+
+	private static boolean[] deserializeBooleanArray(NBTTagCompound tag, String name) {
+		byte[] a = tag.getByteArray(name);
+		boolean[] val = new boolean[a.length];
+		for (int i = 0; i < a.length; i++) {
+			val[i] = a[i] != 0;
+		}
+		return val;
 	}
 
 	private static void serializeItemStack(NBTTagCompound tag, String name, ItemStack val) {
@@ -14,4 +14,20 @@ import java.lang.annotation.Target;
 @Target({ElementType.FIELD, ElementType.TYPE})
 @Retention(RetentionPolicy.RUNTIME)
 public @interface AutoSerializeNBT {
+
+	/**
+	 * Optional compact key for a field, when set the field is written under this number instead of its name.
+	 * Must be unique within the class and never be reused for a different field once saved.
+	 * Tags written with the field name are still read, so an id can be added to existing fields at any time.
+	 * @return The numeric key, negative to use the field name
+	 */
+	int id() default -1;
+
+	/**
+	 * Only used by {@link net.shadowfacts.shadowmc.tileentity.BaseTileEntity}, synced fields are included in the update
+	 * tag that's sent to clients along with the chunk.
+	 * @return If the field should be sent with the chunk
+	 */
+	boolean sync() default false;
+
 }
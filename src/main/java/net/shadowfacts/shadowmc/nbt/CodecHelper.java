@@ -0,0 +1,80 @@
+package net.shadowfacts.shadowmc.nbt;
+
+import net.minecraft.nbt.NBTTagCompound;
+
+/**
+ * Primitive {@link NBTTagCompound} accessors called by codecs generated at runtime.
+ *
+ * Generated bytecode is never reobfuscated, so it can't call Minecraft methods directly. These get compiled (and
+ * reobfuscated) with the rest of ShadowMC and are trivially inlined by the JIT.
+ *
+ * @author shadowfacts
+ */
+public final class CodecHelper {
+
+	private CodecHelper() {}
+
+	/**
+	 * @return The key to read a field from, the legacy key if the tag was written before the field had a compact key
+	 */
+	public static String key(NBTTagCompound tag, String key, String legacyKey) {
+		return key == legacyKey || tag.hasKey(key) || !tag.hasKey(legacyKey) ? key : legacyKey;
+	}
+
+	public static void setByte(NBTTagCompound tag, String name, byte val) {
+		tag.setByte(name, val);
+	}
+
+	public static byte getByte(NBTTagCompound tag, String name) {
+		return tag.getByte(name);
+	}
+
+	public static void setShort(NBTTagCompound tag, String name, short val) {
+		tag.setShort(name, val);
+	}
+
+	public static short getShort(NBTTagCompound tag, String name) {
+		return tag.getShort(name);
+	}
+
+	public static void setInt(NBTTagCompound tag, String name, int val) {
+		tag.setInteger(name, val);
+	}
+
+	public static int getInt(NBTTagCompound tag, String name) {
+		return tag.getInteger(name);
+	}
+
+	public static void setLong(NBTTagCompound tag, String name, long val) {
+		tag.setLong(name, val);
+	}
+
+	public static long getLong(NBTTagCompound tag, String name) {
+		return tag.getLong(name);
+	}
+
+	public static void setFloat(NBTTagCompound tag, String name, float val) {
+		tag.setFloat(name, val);
+	}
+
+	public static float getFloat(NBTTagCompound tag, String name) {
+		return tag.getFloat(name);
+	}
+
+	public static void setDouble(NBTTagCompound tag, String name, double val) {
+		tag.setDouble(name, val);
+	}
+
+	public static double getDouble(NBTTagCompound tag, String name) {
+		return tag.getDouble(name);
+	}
+
+	public static void setBoolean(NBTTagCompound tag, String name, boolean val) {
+		tag.setBoolean(name, val);
+	}
+
+	public static boolean getBoolean(NBTTagCompound tag, String name) {
+		return tag.getBoolean(name);
+	}
+
+}
@@ -0,0 +1,437 @@
+package net.shadowfacts.shadowmc.nbt;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTTagString;
+import net.minecraft.util.math.BlockPos;
+import net.shadowfacts.shadowlib.util.Pair;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * Serializers for parameterized {@link Collection}s and {@link Map}s, resolved from the generic type of the field.
+ *
+ * Elements are packed into a single tag instead of a compound per element:
+ * <ul>
+ *     <li>{@code Integer}, {@code Short}, {@code Character}, {@code Float} and enum ordinals: {@code NBTTagIntArray}</li>
+ *     <li>{@code Byte} and {@code Boolean}: {@code NBTTagByteArray}</li>
+ *     <li>{@code Long}, {@code Double} and {@link BlockPos}: {@code NBTTagIntArray} with 2 ints per element</li>
+ *     <li>{@code String}: {@code NBTTagList} of strings</li>
+ *     <li>Anything else that has a serializer: one compound with the elements under their index</li>
+ * </ul>
+ * Sets of enums are stored as a bitmask, maps as a compound with the packed keys and values under {@code k} and {@code v}.
+ * A {@code null} collection isn't written and is read back as an empty one.
+ *
+ * @author shadowfacts
+ */
+class CollectionSerializers {
+
+	private static final Map<Class<?>, Packer<?>> packers = new HashMap<>();
+
+	static {
+		packers.put(Integer.class, new Packer<Integer>() {
+			@Override
+			void write(NBTTagCompound tag, String name, Collection<Integer> values) {
+				int[] a = new int[values.size()];
+				int i = 0;
+				for (Integer v : values) a[i++] = v;
+				tag.setIntArray(name, a);
+			}
+
+			@Override
+			void read(NBTTagCompound tag, String name, Collection<Integer> into) {
+				for (int v : tag.getIntArray(name)) into.add(v);
+			}
+		});
+		packers.put(Short.class, new Packer<Short>() {
+			@Override
+			void write(NBTTagCompound tag, String name, Collection<Short> values) {
+				int[] a = new int[values.size()];
+				int i = 0;
+				for (Short v : values) a[i++] = v;
+				tag.setIntArray(name, a);
+			}
+
+			@Override
+			void read(NBTTagCompound tag, String name, Collection<Short> into) {
+				for (int v : tag.getIntArray(name)) into.add((short)v);
+			}
+		});
+		packers.put(Character.class, new Packer<Character>() {
+			@Override
+			void write(NBTTagCompound tag, String name, Collection<Character> values) {
+				int[] a = new int[values.size()];
+				int i = 0;
+				for (Character v : values) a[i++] = v;
+				tag.setIntArray(name, a);
+			}
+
+			@Override
+			void read(NBTTagCompound tag, String name, Collection<Character> into) {
+				for (int v : tag.getIntArray(name)) into.add((char)v);
+			}
+		});
+		packers.put(Float.class, new Packer<Float>() {
+			@Override
+			void write(NBTTagCompound tag, String name, Collection<Float> values) {
+				int[] a = new int[values.size()];
+				int i = 0;
+				for (Float v : values) a[i++] = Float.floatToRawIntBits(v);
+				tag.setIntArray(name, a);
+			}
+
+			@Override
+			void read(NBTTagCompound tag, String name, Collection<Float> into) {
+				for (int v : tag.getIntArray(name)) into.add(Float.intBitsToFloat(v));
+			}
+		});
+		packers.put(Byte.class, new Packer<Byte>() {
+			@Override
+			void write(NBTTagCompound tag, String name, Collection<Byte> values) {
+				byte[] a = new byte[values.size()];
+				int i = 0;
+				for (Byte v : values) a[i++] = v;
+				tag.setByteArray(name, a);
+			}
+
+			@Override
+			void read(NBTTagCompound tag, String name, Collection<Byte> into) {
+				for (byte v : tag.getByteArray(name)) into.add(v);
+			}
+		});
+		packers.put(Boolean.class, new Packer<Boolean>() {
+			@Override
+			void write(NBTTagCompound tag, String name, Collection<Boolean> values) {
+				byte[] a = new byte[values.size()];
+				int i = 0;
+				for (Boolean v : values) a[i++] = (byte)(v ? 1 : 0);
+				tag.setByteArray(name, a);
+			}
+
+			@Override
+			void read(NBTTagCompound tag, String name, Collection<Boolean> into) {
+				for (byte v : tag.getByteArray(name)) into.add(v != 0);
+			}
+		});
+		packers.put(Long.class, new Packer<Long>() {
+			@Override
+			void write(NBTTagCompound tag, String name, Collection<Long> values) {
+				long[] a = new long[values.size()];
+				int i = 0;
+				for (Long v : values) a[i++] = v;
+				tag.setIntArray(name, packLongs(a));
+			}
+
+			@Override
+			void read(NBTTagCompound tag, String name, Collection<Long> into) {
+				for (long v : unpackLongs(tag.getIntArray(name))) into.add(v);
+			}
+		});
+		packers.put(Double.class, new Packer<Double>() {
+			@Override
+			void write(NBTTagCompound tag, String name, Collection<Double> values) {
+				long[] a = new long[values.size()];
+				int i = 0;
+				for (Double v : values) a[i++] = Double.doubleToRawLongBits(v);
+				tag.setIntArray(name, packLongs(a));
+			}
+
+			@Override
+			void read(NBTTagCompound tag, String name, Collection<Double> into) {
+				for (long v : unpackLongs(tag.getIntArray(name))) into.add(Double.longBitsToDouble(v));
+			}
+		});
+		packers.put(BlockPos.class, new Packer<BlockPos>() {
+			@Override
+			void write(NBTTagCompound tag, String name, Collection<BlockPos> values) {
+				long[] a = new long[values.size()];
+				int i = 0;
+				for (BlockPos v : values) a[i++] = v.toLong();
+				tag.setIntArray(name, packLongs(a));
+			}
+
+			@Override
+			void read(NBTTagCompound tag, String name, Collection<BlockPos> into) {
+				for (long v : unpackLongs(tag.getIntArray(name))) into.add(BlockPos.fromLong(v));
+			}
+		});
+		packers.put(String.class, new Packer<String>() {
+			@Override
+			void write(NBTTagCompound tag, String name, Collection<String> values) {
+				NBTTagList list = new NBTTagList();
+				for (String v : values) list.appendTag(new NBTTagString(v != null ? v : ""));
+				tag.setTag(name, list);
+			}
+
+			@Override
+			void read(NBTTagCompound tag, String name, Collection<String> into) {
+				NBTTagList list = tag.getTagList(name, 8);
+				for (int i = 0; i < list.tagCount(); i++) into.add(list.getStringTagAt(i));
+			}
+		});
+	}
+
+	/**
+	 * @return The serializers for the given parameterized collection or map type, {@code null} if it isn't supported
+	 */
+	@SuppressWarnings("unchecked")
+	static Pair<NBTSerializer<Object>, NBTDeserializer<Object>> create(Type type) {
+		if (!(type instanceof ParameterizedType)) return null;
+		ParameterizedType parameterized = (ParameterizedType)type;
+		if (!(parameterized.getRawType() instanceof Class)) return null;
+		Class<?> raw = (Class<?>)parameterized.getRawType();
+		Type[] args = parameterized.getActualTypeArguments();
+
+		if (Map.class.isAssignableFrom(raw) && args.length == 2) {
+			Packer<Object> keys = packer(args[0]);
+			Packer<Object> values = packer(args[1]);
+			Supplier<Map<Object, Object>> factory = mapFactory(raw, args[0]);
+			if (keys == null || values == null || factory == null) return null;
+			return new Pair<>((tag, name, val) -> writeMap(tag, name, (Map<Object, Object>)val, keys, values), (tag, name) -> readMap(tag, name, factory.get(), keys, values));
+		}
+
+		if (Collection.class.isAssignableFrom(raw) && args.length == 1) {
+			Class<?> element = rawClass(args[0]);
+			if (element != null && element.isEnum() && Set.class.isAssignableFrom(raw) && raw.isAssignableFrom(EnumSet.class)) {
+				return enumSet((Class<Enum>)element);
+			}
+
+			Packer<Object> elements = packer(args[0]);
+			Supplier<Collection<Object>> factory = collectionFactory(raw);
+			if (elements == null || factory == null) return null;
+			return new Pair<>((tag, name, val) -> {
+				if (val != null) elements.write(tag, name, (Collection<Object>)val);
+			}, (tag, name) -> {
+				Collection<Object> collection = factory.get();
+				elements.read(tag, name, collection);
+				return collection;
+			});
+		}
+
+		return null;
+	}
+
+	private static void writeMap(NBTTagCompound tag, String name, Map<Object, Object> map, Packer<Object> keys, Packer<Object> values) {
+		if (map == null) return;
+		NBTTagCompound mapTag = new NBTTagCompound();
+		keys.write(mapTag, "k", map.keySet());
+		values.write(mapTag, "v", map.values());
+		tag.setTag(name, mapTag);
+	}
+
+	private static Map<Object, Object> readMap(NBTTagCompound tag, String name, Map<Object, Object> map, Packer<Object> keys, Packer<Object> values) {
+		NBTTagCompound mapTag = tag.getCompoundTag(name);
+		List<Object> k = new ArrayList<>();
+		List<Object> v = new ArrayList<>();
+		keys.read(mapTag, "k", k);
+		values.read(mapTag, "v", v);
+		for (int i = 0; i < k.size() && i < v.size(); i++) {
+			map.put(k.get(i), v.get(i));
+		}
+		return map;
+	}
+
+	/**
+	 * Enums with up to 64 constants are stored in a long, larger ones in an int array of 32 bit words
+	 */
+	@SuppressWarnings("unchecked")
+	private static Pair<NBTSerializer<Object>, NBTDeserializer<Object>> enumSet(Class<Enum> type) {
+		Enum[] constants = type.getEnumConstants();
+		if (constants.length <= 64) {
+			return new Pair<>((tag, name, val) -> {
+				if (val == null) return;
+				long mask = 0;
+				for (Enum e : (Set<Enum>)val) mask |= 1L << e.ordinal();
+				tag.setLong(name, mask);
+			}, (tag, name) -> {
+				EnumSet set = EnumSet.noneOf(type);
+				long mask = tag.getLong(name);
+				for (int i = 0; i < constants.length; i++) {
+					if ((mask & (1L << i)) != 0) set.add(constants[i]);
+				}
+				return set;
+			});
+		} else {
+			return new Pair<>((tag, name, val) -> {
+				if (val == null) return;
+				int[] words = new int[(constants.length + 31) / 32];
+				for (Enum e : (Set<Enum>)val) words[e.ordinal() >>> 5] |= 1 << e.ordinal();
+				tag.setIntArray(name, words);
+			}, (tag, name) -> {
+				EnumSet set = EnumSet.noneOf(type);
+				int[] words = tag.getIntArray(name);
+				for (int i = 0; i < constants.length && (i >>> 5) < words.length; i++) {
+					if ((words[i >>> 5] & (1 << i)) != 0) set.add(constants[i]);
+				}
+				return set;
+			});
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Packer<Object> packer(Type type) {
+		Class<?> raw = rawClass(type);
+		if (raw == null) return null;
+		if (packers.containsKey(raw)) return (Packer<Object>)packers.get(raw);
+		if (raw.isEnum()) return (Packer<Object>)enumPacker((Class<Enum>)raw);
+
+		Pair<NBTSerializer<Object>, NBTDeserializer<Object>> pair = AutoNBTSerializer.getSerializersFor(type instanceof WildcardType ? raw : type);
+		return pair != null ? new IndexedPacker(pair.getLeft(), pair.getRight()) : null;
+	}
+
+	private static <E extends Enum<E>> Packer<E> enumPacker(Class<E> type) {
+		E[] constants = type.getEnumConstants();
+		return new Packer<E>() {
+			@Override
+			void write(NBTTagCompound tag, String name, Collection<E> values) {
+				int[] a = new int[values.size()];
+				int i = 0;
+				for (E v : values) a[i++] = v.ordinal();
+				tag.setIntArray(name, a);
+			}
+
+			@Override
+			void read(NBTTagCompound tag, String name, Collection<E> into) {
+				for (int v : tag.getIntArray(name)) {
+//					constants removed since the tag was written are skipped, like in the bitmask
+					if (v >= 0 && v < constants.length) into.add(constants[v]);
+				}
+			}
+		};
+	}
+
+	private static Class<?> rawClass(Type type) {
+		if (type instanceof WildcardType) {
+			Type[] upper = ((WildcardType)type).getUpperBounds();
+			return upper.length == 1 ? rawClass(upper[0]) : null;
+		} else if (type instanceof ParameterizedType) {
+			return rawClass(((ParameterizedType)type).getRawType());
+		} else if (type instanceof Class) {
+			return (Class<?>)type;
+		}
+		return null;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Supplier<Collection<Object>> collectionFactory(Class<?> type) {
+		if (type.isAssignableFrom(ArrayList.class)) return ArrayList::new;
+		if (type.isAssignableFrom(HashSet.class)) return HashSet::new;
+		if (type == SortedSet.class || type == NavigableSet.class) return TreeSet::new;
+		if (type.isAssignableFrom(ArrayDeque.class)) return ArrayDeque::new;
+		return (Supplier<Collection<Object>>)(Supplier)constructor(type);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Supplier<Map<Object, Object>> mapFactory(Class<?> type, Type keyType) {
+		Class<?> key = rawClass(keyType);
+		if (type == EnumMap.class && key != null && key.isEnum()) return () -> new EnumMap(key);
+		if (type.isAssignableFrom(HashMap.class)) return HashMap::new;
+		if (type == SortedMap.class || type == NavigableMap.class) return TreeMap::new;
+		return (Supplier<Map<Object, Object>>)(Supplier)constructor(type);
+	}
+
+	private static Supplier<Object> constructor(Class<?> type) {
+		if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) return null;
+		try {
+			Constructor<?> constructor = type.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			return () -> {
+				try {
+					return constructor.newInstance();
+				} catch (ReflectiveOperationException e) {
+					throw new RuntimeException(e);
+				}
+			};
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	private static int[] packLongs(long[] values) {
+		int[] a = new int[values.length * 2];
+		for (int i = 0; i < values.length; i++) {
+			a[i * 2] = (int)(values[i] >>> 32);
+			a[i * 2 + 1] = (int)values[i];
+		}
+		return a;
+	}
+
+	private static long[] unpackLongs(int[] values) {
+		long[] a = new long[values.length / 2];
+		for (int i = 0; i < a.length; i++) {
+			a[i] = ((long)values[i * 2] << 32) | (values[i * 2 + 1] & 0xFFFFFFFFL);
+		}
+		return a;
+	}
+
+	/**
+	 * Writes a collection of elements into a single tag and reads it back in the same order
+	 */
+	private static abstract class Packer<E> {
+
+		abstract void write(NBTTagCompound tag, String name, Collection<E> values);
+
+		abstract void read(NBTTagCompound tag, String name, Collection<E> into);
+
+	}
+
+	/**
+	 * Fallback for element types that only have a regular serializer, all elements go into one compound keyed by
+	 * their index
+	 */
+	private static class IndexedPacker extends Packer<Object> {
+
+		private final NBTSerializer<Object> serializer;
+		private final NBTDeserializer<Object> deserializer;
+
+		private IndexedPacker(NBTSerializer<Object> serializer, NBTDeserializer<Object> deserializer) {
+			this.serializer = serializer;
+			this.deserializer = deserializer;
+		}
+
+		@Override
+		void write(NBTTagCompound tag, String name, Collection<Object> values) {
+			NBTTagCompound elements = new NBTTagCompound();
+			elements.setInteger("size", values.size());
+			Iterator<Object> it = values.iterator();
+			for (int i = 0; it.hasNext(); i++) {
+				Object v = it.next();
+				if (v != null) serializer.serialize(elements, Integer.toString(i), v);
+			}
+			tag.setTag(name, elements);
+		}
+
+		@Override
+		void read(NBTTagCompound tag, String name, Collection<Object> into) {
+			NBTTagCompound elements = tag.getCompoundTag(name);
+			int size = elements.getInteger("size");
+			for (int i = 0; i < size; i++) {
+				into.add(deserializer.deserialize(elements, Integer.toString(i)));
+			}
+		}
+
+	}
+
+}
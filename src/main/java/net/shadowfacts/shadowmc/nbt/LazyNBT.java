@@ -0,0 +1,104 @@
+package net.shadowfacts.shadowmc.nbt;
+
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagCompound;
+import net.shadowfacts.shadowlib.util.Pair;
+
+import java.lang.reflect.Type;
+
+/**
+ * Holder for heavy {@link AutoSerializeNBT} fields that are only decoded when they're first accessed.
+ *
+ * Declare the field as {@code LazyNBT<T>} instead of {@code T}, when deserialized the field is replaced with a holder
+ * that keeps the raw tag and only runs the deserializer for {@code T} on the first {@link #get()}. As long as the value
+ * hasn't been accessed, saving writes the original tag back as is.
+ * Once {@link #get()} has been called the value may have been modified, so it's always encoded again from then on.
+ *
+ * <pre>
+ * {@literal @}AutoSerializeNBT
+ * private LazyNBT&lt;ItemStack[]&gt; inventory = new LazyNBT&lt;&gt;(new ItemStack[9]);
+ * </pre>
+ *
+ * Not thread-safe, like the rest of a tile entity's state it should only be accessed from the thread that owns it.
+ *
+ * @author shadowfacts
+ */
+public class LazyNBT<T> {
+
+	/**
+	 * Wrapper key used to hand a single raw tag to a {@link NBTDeserializer}
+	 */
+	private static final String KEY = "v";
+
+	private T value;
+
+	private boolean pending;
+	private NBTBase raw;
+	private NBTDeserializer<T> deserializer;
+
+	public LazyNBT(T value) {
+		this.value = value;
+	}
+
+	private LazyNBT(NBTBase raw, NBTDeserializer<T> deserializer) {
+		this.pending = true;
+		this.raw = raw;
+		this.deserializer = deserializer;
+	}
+
+	/**
+	 * Decodes the value if it hasn't been yet
+	 */
+	public T get() {
+		if (pending) {
+			NBTTagCompound wrapper = new NBTTagCompound();
+			if (raw != null) {
+				wrapper.setTag(KEY, raw);
+			}
+			value = deserializer.deserialize(wrapper, KEY);
+			pending = false;
+			raw = null;
+			deserializer = null;
+		}
+		return value;
+	}
+
+	public void set(T value) {
+		this.value = value;
+		pending = false;
+		raw = null;
+		deserializer = null;
+	}
+
+	/**
+	 * @return If the value is still only held as its raw tag
+	 */
+	public boolean isPending() {
+		return pending;
+	}
+
+	private void write(NBTTagCompound tag, String name, NBTSerializer<T> serializer) {
+		if (pending) {
+			if (raw != null) {
+				tag.setTag(name, raw);
+			}
+		} else if (value != null) {
+			serializer.serialize(tag, name, value);
+		}
+	}
+
+	/**
+	 * @return The serializers for {@code LazyNBT<valueType>}, {@code null} if {@code valueType} isn't supported
+	 */
+	@SuppressWarnings("unchecked")
+	static Pair<NBTSerializer<Object>, NBTDeserializer<Object>> serializers(Type valueType) {
+		Pair<NBTSerializer<Object>, NBTDeserializer<Object>> pair = AutoNBTSerializer.getSerializersFor(valueType);
+		if (pair == null) return null;
+		NBTSerializer<Object> serializer = pair.getLeft();
+		NBTDeserializer<Object> deserializer = pair.getRight();
+		return new Pair<>((tag, name, val) -> {
+			if (val != null) ((LazyNBT<Object>)val).write(tag, name, serializer);
+		}, (tag, name) -> new LazyNBT<>(tag.getTag(name), deserializer));
+	}
+
+}
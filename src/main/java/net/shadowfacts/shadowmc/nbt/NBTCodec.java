@@ -0,0 +1,16 @@
+package net.shadowfacts.shadowmc.nbt;
+
+import net.minecraft.nbt.NBTTagCompound;
+
+/**
+ * (De)serializes all {@link AutoSerializeNBT} fields of one specific class.
+ *
+ * @author shadowfacts
+ */
+public interface NBTCodec<T> {
+
+	void serialize(T instance, NBTTagCompound tag);
+
+	void deserialize(T instance, NBTTagCompound tag);
+
+}
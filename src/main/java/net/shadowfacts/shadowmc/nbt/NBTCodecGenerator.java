@@ -0,0 +1,209 @@
+package net.shadowfacts.shadowmc.nbt;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.shadowfacts.shadowmc.util.LogHelper;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Generates a dedicated {@link NBTCodec} class for a {@link SerializationPlan}.
+ *
+ * The generated class reads and writes the fields directly, primitives go through {@link CodecHelper} without ever
+ * being boxed and everything else is handed to the serializers bound in the plan.
+ * The class is defined as an anonymous class hosted by the serialized class so that private fields are accessible.
+ *
+ * Generation can be disabled with {@code -Dshadowmc.autonbt.generate=false}.
+ *
+ * @author shadowfacts
+ */
+class NBTCodecGenerator {
+
+	private static LogHelper log = new LogHelper("ShadowMC|AutoNBT");
+
+	private static final boolean enabled = Boolean.parseBoolean(System.getProperty("shadowmc.autonbt.generate", "true"));
+
+	private static final String CODEC = Type.getInternalName(NBTCodec.class);
+	private static final String HELPER = Type.getInternalName(CodecHelper.class);
+	private static final String SERIALIZER = Type.getInternalName(NBTSerializer.class);
+	private static final String DESERIALIZER = Type.getInternalName(NBTDeserializer.class);
+	private static final String SERIALIZERS_DESC = "[L" + SERIALIZER + ";";
+	private static final String DESERIALIZERS_DESC = "[L" + DESERIALIZER + ";";
+	private static final String TAG_DESC = Type.getDescriptor(NBTTagCompound.class);
+	private static final String CODEC_METHOD_DESC = "(Ljava/lang/Object;" + TAG_DESC + ")V";
+
+	private static Object unsafe;
+	private static Method defineAnonymousClass;
+
+	static {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field f = unsafeClass.getDeclaredField("theUnsafe");
+			f.setAccessible(true);
+			unsafe = f.get(null);
+			defineAnonymousClass = unsafeClass.getMethod("defineAnonymousClass", Class.class, byte[].class, Object[].class);
+		} catch (ReflectiveOperationException e) {
+			log.warn("Unable to generate AutoNBT codecs, falling back to reflection");
+		}
+	}
+
+	/**
+	 * @return The generated codec or {@code null} if one couldn't be generated
+	 */
+	@SuppressWarnings("unchecked")
+	static NBTCodec<Object> generate(Class<?> clazz, SerializationPlan.Entry[] entries) {
+		if (!enabled || defineAnonymousClass == null) return null;
+
+		for (SerializationPlan.Entry e : entries) {
+//			final fields can only be set through reflection
+			if (Modifier.isFinal(e.field.getModifiers())) return null;
+		}
+
+		try {
+			NBTSerializer[] serializers = new NBTSerializer[entries.length];
+			NBTDeserializer[] deserializers = new NBTDeserializer[entries.length];
+			for (int i = 0; i < entries.length; i++) {
+				serializers[i] = entries[i].serializer;
+				deserializers[i] = entries[i].deserializer;
+			}
+
+			Class<?> generated = (Class<?>)defineAnonymousClass.invoke(unsafe, clazz, createClass(clazz, entries), null);
+			Constructor<?> constructor = generated.getDeclaredConstructor(NBTSerializer[].class, NBTDeserializer[].class);
+			constructor.setAccessible(true);
+			return (NBTCodec<Object>)constructor.newInstance(serializers, deserializers);
+		} catch (Throwable t) {
+			log.warn("Couldn't generate AutoNBT codec for %s, falling back to reflection: %s", clazz.getName(), t);
+			return null;
+		}
+	}
+
+	private static byte[] createClass(Class<?> clazz, SerializationPlan.Entry[] entries) {
+		String owner = Type.getInternalName(clazz);
+		String name = owner + "$$NBTCodec";
+
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC, name, null, "java/lang/Object", new String[]{CODEC});
+
+		cw.visitField(ACC_PRIVATE | ACC_FINAL, "serializers", SERIALIZERS_DESC, null, null).visitEnd();
+		cw.visitField(ACC_PRIVATE | ACC_FINAL, "deserializers", DESERIALIZERS_DESC, null, null).visitEnd();
+
+		MethodVisitor init = cw.visitMethod(ACC_PUBLIC, "<init>", "(" + SERIALIZERS_DESC + DESERIALIZERS_DESC + ")V", null, null);
+		init.visitCode();
+		init.visitVarInsn(ALOAD, 0);
+		init.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+		init.visitVarInsn(ALOAD, 0);
+		init.visitVarInsn(ALOAD, 1);
+		init.visitFieldInsn(PUTFIELD, name, "serializers", SERIALIZERS_DESC);
+		init.visitVarInsn(ALOAD, 0);
+		init.visitVarInsn(ALOAD, 2);
+		init.visitFieldInsn(PUTFIELD, name, "deserializers", DESERIALIZERS_DESC);
+		init.visitInsn(RETURN);
+		init.visitMaxs(0, 0);
+		init.visitEnd();
+
+		MethodVisitor serialize = cw.visitMethod(ACC_PUBLIC, "serialize", CODEC_METHOD_DESC, null, null);
+		serialize.visitCode();
+		serialize.visitVarInsn(ALOAD, 1);
+		serialize.visitTypeInsn(CHECKCAST, owner);
+		serialize.visitVarInsn(ASTORE, 3);
+		for (int i = 0; i < entries.length; i++) {
+			SerializationPlan.Entry e = entries[i];
+			Type type = Type.getType(e.field.getType());
+			if (e.isBuiltinPrimitive()) {
+				serialize.visitVarInsn(ALOAD, 2);
+				serialize.visitLdcInsn(e.key);
+				serialize.visitVarInsn(ALOAD, 3);
+				serialize.visitFieldInsn(GETFIELD, owner, e.field.getName(), type.getDescriptor());
+				serialize.visitMethodInsn(INVOKESTATIC, HELPER, "set" + helperSuffix(type), "(" + TAG_DESC + "Ljava/lang/String;" + type.getDescriptor() + ")V", false);
+			} else {
+				serialize.visitVarInsn(ALOAD, 0);
+				serialize.visitFieldInsn(GETFIELD, name, "serializers", SERIALIZERS_DESC);
+				serialize.visitLdcInsn(i);
+				serialize.visitInsn(AALOAD);
+				serialize.visitVarInsn(ALOAD, 2);
+				serialize.visitLdcInsn(e.key);
+				serialize.visitVarInsn(ALOAD, 3);
+				serialize.visitFieldInsn(GETFIELD, owner, e.field.getName(), type.getDescriptor());
+				serialize.visitMethodInsn(INVOKEINTERFACE, SERIALIZER, "serialize", "(" + TAG_DESC + "Ljava/lang/String;Ljava/lang/Object;)V", true);
+			}
+		}
+		serialize.visitInsn(RETURN);
+		serialize.visitMaxs(0, 0);
+		serialize.visitEnd();
+
+		MethodVisitor deserialize = cw.visitMethod(ACC_PUBLIC, "deserialize", CODEC_METHOD_DESC, null, null);
+		deserialize.visitCode();
+		deserialize.visitVarInsn(ALOAD, 1);
+		deserialize.visitTypeInsn(CHECKCAST, owner);
+		deserialize.visitVarInsn(ASTORE, 3);
+		for (int i = 0; i < entries.length; i++) {
+			SerializationPlan.Entry e = entries[i];
+			Type type = Type.getType(e.field.getType());
+			deserialize.visitVarInsn(ALOAD, 3);
+			if (e.isBuiltinPrimitive()) {
+				deserialize.visitVarInsn(ALOAD, 2);
+				readKey(deserialize, e);
+				deserialize.visitMethodInsn(INVOKESTATIC, HELPER, "get" + helperSuffix(type), "(" + TAG_DESC + "Ljava/lang/String;)" + type.getDescriptor(), false);
+			} else {
+				deserialize.visitVarInsn(ALOAD, 0);
+				deserialize.visitFieldInsn(GETFIELD, name, "deserializers", DESERIALIZERS_DESC);
+				deserialize.visitLdcInsn(i);
+				deserialize.visitInsn(AALOAD);
+				deserialize.visitVarInsn(ALOAD, 2);
+				readKey(deserialize, e);
+				deserialize.visitMethodInsn(INVOKEINTERFACE, DESERIALIZER, "deserialize", "(" + TAG_DESC + "Ljava/lang/String;)Ljava/lang/Object;", true);
+				deserialize.visitTypeInsn(CHECKCAST, type.getInternalName());
+			}
+			deserialize.visitFieldInsn(PUTFIELD, owner, e.field.getName(), type.getDescriptor());
+		}
+		deserialize.visitInsn(RETURN);
+		deserialize.visitMaxs(0, 0);
+		deserialize.visitEnd();
+
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	/**
+	 * Pushes the key to read an entry from, fields with a compact key also accept the legacy field name
+	 */
+	private static void readKey(MethodVisitor mv, SerializationPlan.Entry e) {
+		if (e.key.equals(e.name)) {
+			mv.visitLdcInsn(e.key);
+		} else {
+			mv.visitVarInsn(ALOAD, 2);
+			mv.visitLdcInsn(e.key);
+			mv.visitLdcInsn(e.name);
+			mv.visitMethodInsn(INVOKESTATIC, HELPER, "key", "(" + TAG_DESC + "Ljava/lang/String;Ljava/lang/String;)Ljava/lang/String;", false);
+		}
+	}
+
+	private static String helperSuffix(Type type) {
+		switch (type.getSort()) {
+			case Type.BYTE:
+				return "Byte";
+			case Type.SHORT:
+				return "Short";
+			case Type.INT:
+				return "Int";
+			case Type.LONG:
+				return "Long";
+			case Type.FLOAT:
+				return "Float";
+			case Type.DOUBLE:
+				return "Double";
+			case Type.BOOLEAN:
+				return "Boolean";
+			default:
+				throw new IllegalArgumentException("Not a primitive type: " + type);
+		}
+	}
+
+}
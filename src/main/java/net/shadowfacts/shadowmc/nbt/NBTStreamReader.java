@@ -0,0 +1,293 @@
+package net.shadowfacts.shadowmc.nbt;
+
+import io.netty.buffer.ByteBuf;
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagByte;
+import net.minecraft.nbt.NBTTagByteArray;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagDouble;
+import net.minecraft.nbt.NBTTagFloat;
+import net.minecraft.nbt.NBTTagInt;
+import net.minecraft.nbt.NBTTagIntArray;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTTagLong;
+import net.minecraft.nbt.NBTTagShort;
+import net.minecraft.nbt.NBTTagString;
+import net.minecraftforge.common.util.Constants;
+
+/**
+ * Reads NBT written by {@link NBTStreamWriter} or {@link net.minecraftforge.fml.common.network.ByteBufUtils#writeTag}
+ * entry by entry, so that values can be stored directly instead of building a {@link NBTTagCompound} tree first.
+ *
+ * <pre>
+ * if (reader.beginCompound()) {
+ *     int type;
+ *     while ((type = reader.nextType()) != 0) {
+ *         String name = reader.readName();
+ *         ...
+ *     }
+ * }
+ * </pre>
+ *
+ * @author shadowfacts
+ * @see NBTStreamWriter
+ */
+public class NBTStreamReader {
+
+	/**
+	 * Same limit as vanilla
+	 */
+	private static final int MAX_DEPTH = 512;
+	/**
+	 * Same budget as {@link net.minecraftforge.fml.common.network.ByteBufUtils#readTag}, a tag may not be longer than
+	 * this and no length prefix may claim more than what's left of it
+	 */
+	private static final int MAX_BYTES = 2097152;
+
+	private final ByteBuf buf;
+	/**
+	 * The reader index the budget ends at
+	 */
+	private final int limit;
+
+	public NBTStreamReader(ByteBuf buf) {
+		this.buf = buf;
+		this.limit = limit(buf);
+	}
+
+	/**
+	 * Reads the header of the root compound
+	 * @return {@code false} if a {@code null} tag was written instead
+	 */
+	public boolean beginCompound() {
+		int type = buf.readByte();
+		if (type == 0) return false;
+		if (type != Constants.NBT.TAG_COMPOUND) {
+			throw new IllegalStateException("Root tag must be a compound, got " + type);
+		}
+		readUTF(buf, limit);
+		return true;
+	}
+
+	/**
+	 * @return The type of the next entry in the current compound, 0 at the end of it
+	 */
+	public int nextType() {
+		check(buf, limit, 1);
+		return buf.readByte();
+	}
+
+	/**
+	 * @return The name of the entry whose type was just read
+	 */
+	public String readName() {
+		return readUTF(buf, limit);
+	}
+
+	/**
+	 * Reads a numeric payload, converted like {@link net.minecraft.nbt.NBTPrimitive} converts it
+	 */
+	public long readLong(int type) {
+		switch (type) {
+			case Constants.NBT.TAG_BYTE:
+				return buf.readByte();
+			case Constants.NBT.TAG_SHORT:
+				return buf.readShort();
+			case Constants.NBT.TAG_INT:
+				return buf.readInt();
+			case Constants.NBT.TAG_LONG:
+				return buf.readLong();
+			case Constants.NBT.TAG_FLOAT:
+				return (long)Math.floor(buf.readFloat());
+			case Constants.NBT.TAG_DOUBLE:
+				return (long)Math.floor(buf.readDouble());
+			default:
+				throw new IllegalArgumentException("Not a numeric NBT type " + type);
+		}
+	}
+
+	/**
+	 * Reads a numeric payload as a floating point number
+	 */
+	public double readDouble(int type) {
+		switch (type) {
+			case Constants.NBT.TAG_FLOAT:
+				return buf.readFloat();
+			case Constants.NBT.TAG_DOUBLE:
+				return buf.readDouble();
+			default:
+				return readLong(type);
+		}
+	}
+
+	/**
+	 * Reads any payload into a tag
+	 */
+	public NBTBase readTag(int type) {
+		return readTag(type, 0);
+	}
+
+	/**
+	 * Skips any payload
+	 */
+	public void skip(int type) {
+		skip(buf, limit, type, 0);
+	}
+
+	/**
+	 * @return If {@code type} is one of the numeric types, i.e. can be read with {@link #readLong(int)}
+	 */
+	public static boolean isNumeric(int type) {
+		return type >= Constants.NBT.TAG_BYTE && type <= Constants.NBT.TAG_DOUBLE;
+	}
+
+	/**
+	 * @return The number of bytes of the tag starting at the reader index, without moving it
+	 */
+	public static int length(ByteBuf buf) {
+		ByteBuf copy = buf.duplicate();
+		int start = copy.readerIndex();
+		int limit = limit(copy);
+		int type = copy.readByte();
+		if (type != 0) {
+			copy.skipBytes(check(copy, limit, copy.readUnsignedShort()));
+			skip(copy, limit, type, 0);
+		}
+		check(copy, limit, 0);
+		return copy.readerIndex() - start;
+	}
+
+	private NBTBase readTag(int type, int depth) {
+		if (depth > MAX_DEPTH) {
+			throw new IllegalStateException("NBT nested too deep");
+		}
+		switch (type) {
+			case Constants.NBT.TAG_BYTE:
+				return new NBTTagByte(buf.readByte());
+			case Constants.NBT.TAG_SHORT:
+				return new NBTTagShort(buf.readShort());
+			case Constants.NBT.TAG_INT:
+				return new NBTTagInt(buf.readInt());
+			case Constants.NBT.TAG_LONG:
+				return new NBTTagLong(buf.readLong());
+			case Constants.NBT.TAG_FLOAT:
+				return new NBTTagFloat(buf.readFloat());
+			case Constants.NBT.TAG_DOUBLE:
+				return new NBTTagDouble(buf.readDouble());
+			case Constants.NBT.TAG_BYTE_ARRAY:
+				byte[] bytes = new byte[check(buf, limit, buf.readInt())];
+				buf.readBytes(bytes);
+				return new NBTTagByteArray(bytes);
+			case Constants.NBT.TAG_STRING:
+				return new NBTTagString(readUTF(buf, limit));
+			case Constants.NBT.TAG_LIST:
+				int elementType = buf.readByte();
+//				every element is at least one byte
+				int count = check(buf, limit, buf.readInt());
+				NBTTagList list = new NBTTagList();
+				for (int i = 0; i < count; i++) {
+					list.appendTag(readTag(elementType, depth + 1));
+				}
+				return list;
+			case Constants.NBT.TAG_COMPOUND:
+				NBTTagCompound compound = new NBTTagCompound();
+				int entryType;
+				while ((entryType = nextType()) != 0) {
+					String name = readUTF(buf, limit);
+					compound.setTag(name, readTag(entryType, depth + 1));
+				}
+				return compound;
+			case Constants.NBT.TAG_INT_ARRAY:
+				int[] ints = new int[check(buf, limit, buf.readInt() * 4L) / 4];
+				for (int i = 0; i < ints.length; i++) {
+					ints[i] = buf.readInt();
+				}
+				return new NBTTagIntArray(ints);
+			default:
+				throw new IllegalArgumentException("Unknown NBT type " + type);
+		}
+	}
+
+	private static void skip(ByteBuf buf, int limit, int type, int depth) {
+		if (depth > MAX_DEPTH) {
+			throw new IllegalStateException("NBT nested too deep");
+		}
+		switch (type) {
+			case Constants.NBT.TAG_BYTE:
+				buf.skipBytes(1);
+				break;
+			case Constants.NBT.TAG_SHORT:
+				buf.skipBytes(2);
+				break;
+			case Constants.NBT.TAG_INT:
+			case Constants.NBT.TAG_FLOAT:
+				buf.skipBytes(4);
+				break;
+			case Constants.NBT.TAG_LONG:
+			case Constants.NBT.TAG_DOUBLE:
+				buf.skipBytes(8);
+				break;
+			case Constants.NBT.TAG_BYTE_ARRAY:
+				buf.skipBytes(check(buf, limit, buf.readInt()));
+				break;
+			case Constants.NBT.TAG_STRING:
+				buf.skipBytes(check(buf, limit, buf.readUnsignedShort()));
+				break;
+			case Constants.NBT.TAG_LIST:
+				int elementType = buf.readByte();
+				int count = check(buf, limit, buf.readInt());
+				for (int i = 0; i < count; i++) {
+					skip(buf, limit, elementType, depth + 1);
+				}
+				break;
+			case Constants.NBT.TAG_COMPOUND:
+				int entryType;
+				while ((entryType = buf.readByte()) != 0) {
+					buf.skipBytes(check(buf, limit, buf.readUnsignedShort()));
+					skip(buf, limit, entryType, depth + 1);
+				}
+				break;
+			case Constants.NBT.TAG_INT_ARRAY:
+				buf.skipBytes(check(buf, limit, buf.readInt() * 4L));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown NBT type " + type);
+		}
+	}
+
+	private static int limit(ByteBuf buf) {
+		return (int)Math.min(buf.writerIndex(), (long)buf.readerIndex() + MAX_BYTES);
+	}
+
+	/**
+	 * @return {@code length}, if that many bytes are left before {@code limit}
+	 */
+	private static int check(ByteBuf buf, int limit, long length) {
+		if (length < 0 || length > limit - buf.readerIndex()) {
+			throw new IllegalStateException("NBT length " + length + " exceeds the " + (limit - buf.readerIndex()) + " bytes left");
+		}
+		return (int)length;
+	}
+
+	/**
+	 * Modified UTF-8, same as {@link java.io.DataInput#readUTF()}
+	 */
+	private static String readUTF(ByteBuf buf, int limit) {
+		int length = check(buf, limit, buf.readUnsignedShort());
+		char[] chars = new char[length];
+		int count = 0;
+		int end = buf.readerIndex() + length;
+		while (buf.readerIndex() < end) {
+			int b = buf.readByte() & 0xFF;
+			if (b < 0x80) {
+				chars[count++] = (char)b;
+			} else if ((b & 0xE0) == 0xC0) {
+				chars[count++] = (char)(((b & 0x1F) << 6) | (buf.readByte() & 0x3F));
+			} else {
+				chars[count++] = (char)(((b & 0x0F) << 12) | ((buf.readByte() & 0x3F) << 6) | (buf.readByte() & 0x3F));
+			}
+		}
+		return new String(chars, 0, count);
+	}
+
+}
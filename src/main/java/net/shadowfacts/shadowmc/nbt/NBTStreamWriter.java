@@ -0,0 +1,202 @@
+package net.shadowfacts.shadowmc.nbt;
+
+import io.netty.buffer.ByteBuf;
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTPrimitive;
+import net.minecraft.nbt.NBTTagByteArray;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagIntArray;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTTagString;
+import net.minecraftforge.common.util.Constants;
+
+/**
+ * Writes NBT directly into a {@link ByteBuf} without building a {@link NBTTagCompound} tree first.
+ *
+ * The output is exactly what {@link net.minecraftforge.fml.common.network.ByteBufUtils#writeTag} writes for the same
+ * compound (apart from the order of the keys, which NBT doesn't define), so it can be read by either side.
+ *
+ * <pre>
+ * writer.beginCompound();
+ * writer.writeInt("energy", energy);
+ * AutoNBTSerializer.serialize(getClass(), this, writer);
+ * writer.endCompound();
+ * </pre>
+ *
+ * @author shadowfacts
+ * @see NBTStreamReader
+ */
+public class NBTStreamWriter {
+
+	private final ByteBuf buf;
+
+	public NBTStreamWriter(ByteBuf buf) {
+		this.buf = buf;
+	}
+
+	/**
+	 * Starts the unnamed root compound
+	 */
+	public void beginCompound() {
+		buf.writeByte(Constants.NBT.TAG_COMPOUND);
+		writeUTF("");
+	}
+
+	/**
+	 * Ends the current compound, either the root or one started with {@link #beginCompound(String)}
+	 */
+	public void endCompound() {
+		buf.writeByte(0);
+	}
+
+	/**
+	 * Starts a nested compound
+	 */
+	public void beginCompound(String name) {
+		writeHeader(Constants.NBT.TAG_COMPOUND, name);
+	}
+
+	public void writeByte(String name, byte val) {
+		writeHeader(Constants.NBT.TAG_BYTE, name);
+		buf.writeByte(val);
+	}
+
+	public void writeShort(String name, short val) {
+		writeHeader(Constants.NBT.TAG_SHORT, name);
+		buf.writeShort(val);
+	}
+
+	public void writeInt(String name, int val) {
+		writeHeader(Constants.NBT.TAG_INT, name);
+		buf.writeInt(val);
+	}
+
+	public void writeLong(String name, long val) {
+		writeHeader(Constants.NBT.TAG_LONG, name);
+		buf.writeLong(val);
+	}
+
+	public void writeFloat(String name, float val) {
+		writeHeader(Constants.NBT.TAG_FLOAT, name);
+		buf.writeFloat(val);
+	}
+
+	public void writeDouble(String name, double val) {
+		writeHeader(Constants.NBT.TAG_DOUBLE, name);
+		buf.writeDouble(val);
+	}
+
+	/**
+	 * Written as a byte, like {@link NBTTagCompound#setBoolean(String, boolean)}
+	 */
+	public void writeBoolean(String name, boolean val) {
+		writeHeader(Constants.NBT.TAG_BYTE, name);
+		buf.writeByte(val ? 1 : 0);
+	}
+
+	public void writeString(String name, String val) {
+		writeHeader(Constants.NBT.TAG_STRING, name);
+		writeUTF(val);
+	}
+
+	public void writeTag(String name, NBTBase tag) {
+		writeHeader(tag.getId(), name);
+		writePayload(tag);
+	}
+
+	/**
+	 * Writes all entries of {@code tag} into the current compound
+	 */
+	public void writeEntries(NBTTagCompound tag) {
+		for (String key : tag.getKeySet()) {
+			writeTag(key, tag.getTag(key));
+		}
+	}
+
+	private void writeHeader(int type, String name) {
+		buf.writeByte(type);
+		writeUTF(name);
+	}
+
+	private void writePayload(NBTBase tag) {
+		switch (tag.getId()) {
+			case Constants.NBT.TAG_BYTE:
+				buf.writeByte(((NBTPrimitive)tag).getByte());
+				break;
+			case Constants.NBT.TAG_SHORT:
+				buf.writeShort(((NBTPrimitive)tag).getShort());
+				break;
+			case Constants.NBT.TAG_INT:
+				buf.writeInt(((NBTPrimitive)tag).getInt());
+				break;
+			case Constants.NBT.TAG_LONG:
+				buf.writeLong(((NBTPrimitive)tag).getLong());
+				break;
+			case Constants.NBT.TAG_FLOAT:
+				buf.writeFloat(((NBTPrimitive)tag).getFloat());
+				break;
+			case Constants.NBT.TAG_DOUBLE:
+				buf.writeDouble(((NBTPrimitive)tag).getDouble());
+				break;
+			case Constants.NBT.TAG_BYTE_ARRAY:
+				byte[] bytes = ((NBTTagByteArray)tag).getByteArray();
+				buf.writeInt(bytes.length);
+				buf.writeBytes(bytes);
+				break;
+			case Constants.NBT.TAG_STRING:
+				writeUTF(((NBTTagString)tag).getString());
+				break;
+			case Constants.NBT.TAG_LIST:
+				NBTTagList list = (NBTTagList)tag;
+				buf.writeByte(list.getTagType());
+				buf.writeInt(list.tagCount());
+				for (int i = 0; i < list.tagCount(); i++) {
+					writePayload(list.get(i));
+				}
+				break;
+			case Constants.NBT.TAG_COMPOUND:
+				writeEntries((NBTTagCompound)tag);
+				endCompound();
+				break;
+			case Constants.NBT.TAG_INT_ARRAY:
+				int[] ints = ((NBTTagIntArray)tag).getIntArray();
+				buf.writeInt(ints.length);
+				for (int i : ints) {
+					buf.writeInt(i);
+				}
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown NBT type " + tag.getId());
+		}
+	}
+
+	/**
+	 * Modified UTF-8, same as {@link java.io.DataOutput#writeUTF(String)}
+	 */
+	private void writeUTF(String s) {
+		int lengthIndex = buf.writerIndex();
+		buf.writeShort(0);
+		int length = 0;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c != 0 && c < 0x80) {
+				buf.writeByte(c);
+				length++;
+			} else if (c < 0x800) {
+				buf.writeByte(0xC0 | (c >> 6));
+				buf.writeByte(0x80 | (c & 0x3F));
+				length += 2;
+			} else {
+				buf.writeByte(0xE0 | (c >> 12));
+				buf.writeByte(0x80 | ((c >> 6) & 0x3F));
+				buf.writeByte(0x80 | (c & 0x3F));
+				length += 3;
+			}
+		}
+		if (length > 0xFFFF) {
+			throw new IllegalArgumentException("String too long: " + length + " bytes");
+		}
+		buf.setShort(lengthIndex, length);
+	}
+
+}
@@ -0,0 +1,346 @@
+package net.shadowfacts.shadowmc.nbt;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.shadowfacts.shadowlib.util.Pair;
+import net.shadowfacts.shadowmc.util.LogHelper;
+import net.shadowfacts.shadowmc.util.ReflectionUtil;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The resolved set of {@link AutoSerializeNBT} fields for a single class.
+ *
+ * Built once per class by {@link AutoNBTSerializer}, the fields are already accessible and bound to their serializers
+ * so (de)serializing an instance is a simple loop without any lookups.
+ * A {@code *_NBTCodec} generated at compile time is preferred, otherwise a dedicated codec is generated at runtime by
+ * {@link NBTCodecGenerator}. This reflective path is only taken if neither exists or the codec fails.
+ *
+ * @author shadowfacts
+ */
+class SerializationPlan implements NBTCodec<Object> {
+
+	private static LogHelper log = new LogHelper("ShadowMC|AutoNBT");
+
+	private final Class<?> clazz;
+	private volatile Entry[] entries;
+	private volatile NBTCodec<Object> compiled;
+	private volatile Map<String, Integer> indices;
+
+	private SerializationPlan(Class<?> clazz, NBTCodec<Object> generated) {
+		this.clazz = clazz;
+		if (generated != null) {
+//			fields are only resolved if the generated codec ever fails
+			this.compiled = generated;
+		} else {
+			this.entries = resolveEntries(clazz);
+			this.compiled = NBTCodecGenerator.generate(clazz, entries);
+		}
+	}
+
+	@Override
+	public void serialize(Object instance, NBTTagCompound tag) {
+		NBTCodec<Object> codec = compiled;
+		if (codec != null) {
+			try {
+				codec.serialize(instance, tag);
+				return;
+			} catch (LinkageError | RuntimeException e) {
+//				redone reflectively below, which overwrites whatever the codec wrote and reports the field that fails
+				discardCompiled(e);
+			}
+		}
+
+		serializeReflectively(instance, tag);
+	}
+
+	@Override
+	public void deserialize(Object instance, NBTTagCompound tag) {
+		NBTCodec<Object> codec = compiled;
+		if (codec != null) {
+			try {
+				codec.deserialize(instance, tag);
+				return;
+			} catch (LinkageError | RuntimeException e) {
+//				the reflective pass sets every field, so nothing the codec set partially is left behind
+				discardCompiled(e);
+			}
+		}
+
+		deserializeReflectively(instance, tag);
+	}
+
+	/**
+	 * Only deserializes the fields with the given keys, always done reflectively since it's only used for partial updates
+	 */
+	void deserialize(Object instance, NBTTagCompound tag, Set<String> keys) {
+		for (Entry e : entries()) {
+			if (!keys.contains(e.key)) continue;
+			try {
+				e.field.set(instance, e.deserializer.deserialize(tag, e.key));
+			} catch (Exception ex) {
+				log.error("Couldn't deserialize %s in %s", e.name, clazz.getName());
+			}
+		}
+	}
+
+	/**
+	 * Only serializes the {@link AutoSerializeNBT#sync()} fields, always done reflectively since it's only used for
+	 * update tags
+	 */
+	@SuppressWarnings("unchecked")
+	void serializeSynced(Object instance, NBTTagCompound tag) {
+		for (Entry e : entries()) {
+			if (!e.synced) continue;
+			try {
+				e.serializer.serialize(tag, e.key, e.field.get(instance));
+			} catch (Exception ex) {
+				log.error("Couldn't serialize %s in %s", e.name, clazz.getName());
+			}
+		}
+	}
+
+	void deserializeSynced(Object instance, NBTTagCompound tag) {
+		for (Entry e : entries()) {
+			if (!e.synced) continue;
+			try {
+				e.field.set(instance, e.deserializer.deserialize(tag, e.key));
+			} catch (Exception ex) {
+				log.error("Couldn't deserialize %s in %s", e.name, clazz.getName());
+			}
+		}
+	}
+
+	/**
+	 * Writes the fields straight into {@code out}, primitives are written without any intermediate tag
+	 */
+	@SuppressWarnings("unchecked")
+	void serialize(Object instance, NBTStreamWriter out) {
+		for (Entry e : entries()) {
+			try {
+				if (e.isBuiltinPrimitive()) {
+					writePrimitive(e, instance, out);
+				} else {
+					NBTTagCompound scratch = new NBTTagCompound();
+					e.serializer.serialize(scratch, e.key, e.field.get(instance));
+					out.writeEntries(scratch);
+				}
+			} catch (Exception ex) {
+				log.error("Couldn't serialize %s in %s", e.name, clazz.getName());
+			}
+		}
+	}
+
+	/**
+	 * Reads the remaining entries of the current compound of {@code in}. Primitives are set directly, every other entry
+	 * is collected in {@code rest} and the fields that weren't set directly are deserialized from it.
+	 */
+	void deserialize(Object instance, NBTStreamReader in, NBTTagCompound rest) {
+		Entry[] entries = entries();
+		Map<String, Integer> indices = indices();
+//		0: not read, 1: read from the legacy key, 2: read from the key
+		byte[] read = new byte[entries.length];
+
+		int type;
+		while ((type = in.nextType()) != 0) {
+			String name = in.readName();
+			Integer index = indices.get(name);
+			if (index != null && entries[index].isBuiltinPrimitive() && NBTStreamReader.isNumeric(type)) {
+				Entry e = entries[index];
+				boolean legacy = !name.equals(e.key);
+				if (legacy && read[index] == 2) {
+					in.skip(type);
+					continue;
+				}
+				try {
+					readPrimitive(e, instance, in, type);
+					read[index] = legacy ? (byte)1 : (byte)2;
+				} catch (Exception ex) {
+					log.error("Couldn't deserialize %s in %s", e.name, clazz.getName());
+				}
+				continue;
+			}
+			rest.setTag(name, in.readTag(type));
+		}
+
+		for (int i = 0; i < entries.length; i++) {
+			if (read[i] != 0) continue;
+			Entry e = entries[i];
+			try {
+				e.field.set(instance, e.deserializer.deserialize(rest, CodecHelper.key(rest, e.key, e.name)));
+			} catch (Exception ex) {
+				log.error("Couldn't deserialize %s in %s", e.name, clazz.getName());
+			}
+		}
+	}
+
+	private static void writePrimitive(Entry e, Object instance, NBTStreamWriter out) throws IllegalAccessException {
+		Class<?> type = e.field.getType();
+		if (type == int.class) {
+			out.writeInt(e.key, e.field.getInt(instance));
+		} else if (type == boolean.class) {
+			out.writeBoolean(e.key, e.field.getBoolean(instance));
+		} else if (type == float.class) {
+			out.writeFloat(e.key, e.field.getFloat(instance));
+		} else if (type == double.class) {
+			out.writeDouble(e.key, e.field.getDouble(instance));
+		} else if (type == long.class) {
+			out.writeLong(e.key, e.field.getLong(instance));
+		} else if (type == short.class) {
+			out.writeShort(e.key, e.field.getShort(instance));
+		} else {
+			out.writeByte(e.key, e.field.getByte(instance));
+		}
+	}
+
+	private static void readPrimitive(Entry e, Object instance, NBTStreamReader in, int tagType) throws IllegalAccessException {
+		Class<?> type = e.field.getType();
+		if (type == int.class) {
+			e.field.setInt(instance, (int)in.readLong(tagType));
+		} else if (type == boolean.class) {
+			e.field.setBoolean(instance, (byte)in.readLong(tagType) != 0);
+		} else if (type == float.class) {
+			e.field.setFloat(instance, (float)in.readDouble(tagType));
+		} else if (type == double.class) {
+			e.field.setDouble(instance, in.readDouble(tagType));
+		} else if (type == long.class) {
+			e.field.setLong(instance, in.readLong(tagType));
+		} else if (type == short.class) {
+			e.field.setShort(instance, (short)in.readLong(tagType));
+		} else {
+			e.field.setByte(instance, (byte)in.readLong(tagType));
+		}
+	}
+
+	/**
+	 * @return The index of the entry for each key, including the field names of entries with compact keys
+	 */
+	private Map<String, Integer> indices() {
+		if (indices == null) {
+			Entry[] entries = entries();
+			Map<String, Integer> map = new HashMap<>();
+			for (int i = 0; i < entries.length; i++) {
+				map.put(entries[i].name, i);
+			}
+			for (int i = 0; i < entries.length; i++) {
+				map.put(entries[i].key, i);
+			}
+			indices = map;
+		}
+		return indices;
+	}
+
+	/**
+	 * Keeps the class on the reflective path after the first failure instead of running the broken codec every time
+	 */
+	private void discardCompiled(Throwable e) {
+		if (compiled == null) return;
+		compiled = null;
+		log.error("AutoNBT codec for %s failed, falling back to reflection", e, clazz.getName());
+	}
+
+	@SuppressWarnings("unchecked")
+	private void serializeReflectively(Object instance, NBTTagCompound tag) {
+		for (Entry e : entries()) {
+			try {
+				e.serializer.serialize(tag, e.key, e.field.get(instance));
+			} catch (Exception ex) {
+				log.error("Couldn't serialize %s in %s", e.name, clazz.getName());
+				ex.printStackTrace();
+			}
+		}
+	}
+
+	private void deserializeReflectively(Object instance, NBTTagCompound tag) {
+		for (Entry e : entries()) {
+			try {
+				e.field.set(instance, e.deserializer.deserialize(tag, CodecHelper.key(tag, e.key, e.name)));
+			} catch (Exception ex) {
+				log.error("Couldn't deserialize %s in %s", e.name, clazz.getName());
+			}
+		}
+	}
+
+	private Entry[] entries() {
+		if (entries == null) {
+			entries = resolveEntries(clazz);
+		}
+		return entries;
+	}
+
+	static SerializationPlan build(Class<?> clazz) {
+		return new SerializationPlan(clazz, ReflectionUtil.instantiateCompanion(clazz, "_NBTCodec"));
+	}
+
+	private static Entry[] resolveEntries(Class<?> clazz) {
+		boolean all = clazz.isAnnotationPresent(AutoSerializeNBT.class);
+		List<Entry> entries = new ArrayList<>();
+		Set<Integer> ids = new HashSet<>();
+
+		for (Field f : clazz.getDeclaredFields()) {
+			if (Modifier.isStatic(f.getModifiers())) continue;
+			if (!all && !f.isAnnotationPresent(AutoSerializeNBT.class)) continue;
+
+			Pair<NBTSerializer<Object>, NBTDeserializer<Object>> pair = AutoNBTSerializer.getSerializersFor(f.getGenericType());
+			if (pair == null) {
+				log.error("No serializer registered for %s (type %s) in %s", f.getName(), f.getGenericType().getTypeName(), clazz.getName());
+				continue;
+			}
+
+			AutoSerializeNBT annotation = f.getAnnotation(AutoSerializeNBT.class);
+			int id = annotation != null ? annotation.id() : -1;
+			if (id >= 0 && !ids.add(id)) {
+				log.error("Duplicate AutoNBT id %d for %s in %s, using the field name", id, f.getName(), clazz.getName());
+				id = -1;
+			}
+
+			f.setAccessible(true);
+			boolean synced = annotation != null && annotation.sync();
+			entries.add(new Entry(f, id >= 0 ? Integer.toString(id) : f.getName(), synced, pair.getLeft(), pair.getRight(), AutoNBTSerializer.isBuiltinPrimitive(f.getType(), pair.getLeft())));
+		}
+
+		return entries.toArray(new Entry[entries.size()]);
+	}
+
+	static class Entry {
+
+		final Field field;
+		final String name;
+		/**
+		 * The key written to the tag, the compact id if the field has one, otherwise the same as {@link #name}
+		 */
+		final String key;
+		/**
+		 * If the field is part of the update tag
+		 */
+		final boolean synced;
+		final NBTSerializer<Object> serializer;
+		final NBTDeserializer<Object> deserializer;
+		private final boolean builtinPrimitive;
+
+		private Entry(Field field, String key, boolean synced, NBTSerializer<Object> serializer, NBTDeserializer<Object> deserializer, boolean builtinPrimitive) {
+			this.field = field;
+			this.name = field.getName();
+			this.key = key;
+			this.synced = synced;
+			this.serializer = serializer;
+			this.deserializer = deserializer;
+			this.builtinPrimitive = builtinPrimitive;
+		}
+
+		/**
+		 * @return If this is a primitive field still using the default serializer, i.e. generated codecs can write it directly
+		 */
+		boolean isBuiltinPrimitive() {
+			return builtinPrimitive;
+		}
+
+	}
+
+}
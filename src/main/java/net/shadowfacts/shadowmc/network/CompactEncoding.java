@@ -0,0 +1,71 @@
+package net.shadowfacts.shadowmc.network;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * VarInt and ZigZag helpers used by {@link CompactPacket} fields.
+ *
+ * VarInts store 7 bits per byte with the high bit set on every byte but the last, ZigZag maps signed values to
+ * unsigned ones so that small negative numbers stay small ({@code 0, -1, 1, -2} become {@code 0, 1, 2, 3}).
+ *
+ * @author shadowfacts
+ */
+public final class CompactEncoding {
+
+	private CompactEncoding() {}
+
+	public static void writeVarInt(ByteBuf buf, int value) {
+		while ((value & ~0x7F) != 0) {
+			buf.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buf.writeByte(value);
+	}
+
+	public static int readVarInt(ByteBuf buf) {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			byte b = buf.readByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) return value;
+		}
+		throw new RuntimeException("VarInt too big");
+	}
+
+	public static void writeVarLong(ByteBuf buf, long value) {
+		while ((value & ~0x7FL) != 0) {
+			buf.writeByte((int)(value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buf.writeByte((int)value);
+	}
+
+	public static long readVarLong(ByteBuf buf) {
+		long value = 0;
+		for (int shift = 0; shift < 70; shift += 7) {
+			byte b = buf.readByte();
+			value |= (long)(b & 0x7F) << shift;
+			if ((b & 0x80) == 0) return value;
+		}
+		throw new RuntimeException("VarLong too big");
+	}
+
+	public static void writeZigZagInt(ByteBuf buf, int value) {
+		writeVarInt(buf, (value << 1) ^ (value >> 31));
+	}
+
+	public static int readZigZagInt(ByteBuf buf) {
+		int value = readVarInt(buf);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	public static void writeZigZagLong(ByteBuf buf, long value) {
+		writeVarLong(buf, (value << 1) ^ (value >> 63));
+	}
+
+	public static long readZigZagLong(ByteBuf buf) {
+		long value = readVarLong(buf);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+}
@@ -0,0 +1,26 @@
+package net.shadowfacts.shadowmc.network;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Opts {@link PacketBase} fields into the compact encoding.
+ * For fields only the field is encoded compactly
+ * For packet types all fields are
+ *
+ * <ul>
+ *     <li>{@code int}, {@code short} and {@code long}: ZigZag encoded VarInt/VarLong, 1 byte for values in [-64, 63]</li>
+ *     <li>{@code char}: VarInt</li>
+ *     <li>{@code boolean}: all compact booleans of the packet share one bitfield, written before the other fields</li>
+ *     <li>Enums: VarInt ordinal, any enum type is supported, not only the ones with handlers</li>
+ * </ul>
+ * Everything else is written with the regular handlers.
+ *
+ * @author shadowfacts
+ */
+@Target({ElementType.FIELD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CompactPacket {
+}
@@ -0,0 +1,20 @@
+package net.shadowfacts.shadowmc.network;
+
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.tileentity.TileEntity;
+
+/**
+ * Applies a {@link GUIActions GUI action} to a TE, always called on the server thread.
+ *
+ * @author shadowfacts
+ */
+@FunctionalInterface
+public interface GUIActionHandler<T extends TileEntity> {
+
+	/**
+	 * @param player The player that performed the action, already checked to be within reach of the TE
+	 * @param args The arguments the client sent, handlers have to validate them
+	 */
+	void handle(T te, EntityPlayerMP player, int[] args);
+
+}
@@ -0,0 +1,55 @@
+package net.shadowfacts.shadowmc.network;
+
+import net.minecraft.tileentity.TileEntity;
+import net.shadowfacts.shadowmc.ShadowMC;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Typed client to server actions for TE GUIs, e.g. button presses.
+ *
+ * Instead of changing the TE on the client and uploading all of it, the GUI sends an action id and a few int arguments
+ * which the handler registered for the TE class applies on the server:
+ * <pre>
+ * GUIActions.register(TileEntityFoo.class, TileEntityFoo.ACTION_TOGGLE, (te, player, args) -&gt; te.toggle());
+ * GUIActions.send(te, TileEntityFoo.ACTION_TOGGLE);
+ * </pre>
+ * Handlers registered for a superclass also apply to its subclasses. Register them during pre-init.
+ *
+ * @author shadowfacts
+ */
+public class GUIActions {
+
+	private static final Map<Class<?>, Map<Integer, GUIActionHandler<?>>> handlers = new HashMap<>();
+
+	public static <T extends TileEntity> void register(Class<T> type, int action, GUIActionHandler<T> handler) {
+		Map<Integer, GUIActionHandler<?>> actions = handlers.computeIfAbsent(type, k -> new HashMap<>());
+		if (actions.containsKey(action)) {
+			throw new IllegalArgumentException("GUI action " + action + " is already registered for " + type.getName());
+		}
+		actions.put(action, handler);
+	}
+
+	/**
+	 * Client: Sends the action for the TE to the server
+	 */
+	public static void send(TileEntity te, int action, int... args) {
+		ShadowMC.network.sendToServer(new PacketGUIAction(te.getPos(), action, args));
+	}
+
+	/**
+	 * @return The handler for the action registered for the class or its closest superclass, {@code null} if there's none
+	 */
+	@SuppressWarnings("unchecked")
+	static GUIActionHandler<TileEntity> get(Class<?> type, int action) {
+		for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+			Map<Integer, GUIActionHandler<?>> actions = handlers.get(c);
+			if (actions != null && actions.containsKey(action)) {
+				return (GUIActionHandler<TileEntity>)actions.get(action);
+			}
+		}
+		return null;
+	}
+
+}
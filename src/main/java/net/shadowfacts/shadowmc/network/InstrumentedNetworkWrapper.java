@@ -0,0 +1,49 @@
+package net.shadowfacts.shadowmc.network;
+
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraftforge.fml.common.network.NetworkRegistry;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
+import net.minecraftforge.fml.common.network.simpleimpl.SimpleNetworkWrapper;
+
+/**
+ * Counts the sends per packet class and path in {@link NetStats}, the sizes are recorded when the packets are encoded.
+ *
+ * @author shadowfacts
+ */
+public class InstrumentedNetworkWrapper extends SimpleNetworkWrapper {
+
+	public InstrumentedNetworkWrapper(String channelName) {
+		super(channelName);
+	}
+
+	@Override
+	public void sendToAll(IMessage message) {
+		NetStats.recordSend(message.getClass(), NetStats.SendPath.ALL);
+		super.sendToAll(message);
+	}
+
+	@Override
+	public void sendTo(IMessage message, EntityPlayerMP player) {
+		NetStats.recordSend(message.getClass(), NetStats.SendPath.TO);
+		super.sendTo(message, player);
+	}
+
+	@Override
+	public void sendToAllAround(IMessage message, NetworkRegistry.TargetPoint point) {
+		NetStats.recordSend(message.getClass(), NetStats.SendPath.ALL_AROUND);
+		super.sendToAllAround(message, point);
+	}
+
+	@Override
+	public void sendToDimension(IMessage message, int dimensionId) {
+		NetStats.recordSend(message.getClass(), NetStats.SendPath.DIMENSION);
+		super.sendToDimension(message, dimensionId);
+	}
+
+	@Override
+	public void sendToServer(IMessage message) {
+		NetStats.recordSend(message.getClass(), NetStats.SendPath.SERVER);
+		super.sendToServer(message);
+	}
+
+}
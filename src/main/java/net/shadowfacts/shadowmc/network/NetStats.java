@@ -0,0 +1,254 @@
+package net.shadowfacts.shadowmc.network;
+
+import net.minecraft.util.math.BlockPos;
+import net.shadowfacts.shadowmc.util.LogHelper;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Bandwidth statistics for {@link PacketBase} packets, recorded from any thread.
+ *
+ * Encoding and decoding are recorded by {@link PacketBase} itself, sends by {@link InstrumentedNetworkWrapper} and
+ * {@link PacketUpdateTE}s additionally by TE class and position.
+ *
+ * @author shadowfacts
+ */
+public class NetStats {
+
+	/**
+	 * Positions are only tracked up to this many, so a long running server can't fill up the map
+	 */
+	private static final int MAX_POSITIONS = 4096;
+
+	private static final String CSV_HEADER = "time,packet,sent,sentBytes,sentP50,sentP99,encodeMicros,received,receivedBytes,receivedP50,receivedP99,decodeMicros,sendTo,sendToAll,sendToAllAround,sendToDimension,sendToServer";
+
+	private static LogHelper log = new LogHelper("ShadowMC|NetStats");
+
+	private static final Map<Class<?>, PacketStats> packets = new ConcurrentHashMap<>();
+	private static final Map<String, LongAdder> teClasses = new ConcurrentHashMap<>();
+	private static final Map<String, LongAdder> tePositions = new ConcurrentHashMap<>();
+
+	private static File csvFile;
+	private static int csvInterval;
+	private static int ticks;
+
+	static void recordEncode(Class<?> type, int bytes, long nanos) {
+		PacketStats stats = get(type);
+		stats.encoded.record(bytes);
+		stats.encodeNanos.add(nanos);
+	}
+
+	static void recordDecode(Class<?> type, int bytes, long nanos) {
+		PacketStats stats = get(type);
+		stats.decoded.record(bytes);
+		stats.decodeNanos.add(nanos);
+	}
+
+	static void recordSend(Class<?> type, SendPath path) {
+		get(type).sends[path.ordinal()].increment();
+	}
+
+	static void recordTileEntity(String teClass, int dim, BlockPos pos, int bytes) {
+		if (teClass != null) {
+			teClasses.computeIfAbsent(teClass, k -> new LongAdder()).add(bytes);
+		}
+		String key = dim + ": " + pos.getX() + ", " + pos.getY() + ", " + pos.getZ();
+		LongAdder adder = tePositions.get(key);
+		if (adder == null) {
+			if (tePositions.size() >= MAX_POSITIONS) return;
+			adder = tePositions.computeIfAbsent(key, k -> new LongAdder());
+		}
+		adder.add(bytes);
+	}
+
+	private static PacketStats get(Class<?> type) {
+		PacketStats stats = packets.get(type);
+		return stats != null ? stats : packets.computeIfAbsent(type, k -> new PacketStats());
+	}
+
+	public static void reset() {
+		packets.clear();
+		teClasses.clear();
+		tePositions.clear();
+	}
+
+	/**
+	 * @return One line per packet class, the classes with the most bytes sent and received first
+	 */
+	public static List<String> summary() {
+		return packets.entrySet().stream()
+				.sorted(Comparator.comparingLong((Map.Entry<Class<?>, PacketStats> e) -> e.getValue().encoded.bytes.sum() + e.getValue().decoded.bytes.sum()).reversed())
+				.map(e -> {
+					PacketStats s = e.getValue();
+					return String.format(Locale.ROOT, "%s: sent %d (%s, p50 %d B, p99 %d B, %.1f µs), received %d (%s, p50 %d B, p99 %d B, %.1f µs)",
+							e.getKey().getSimpleName(),
+							s.encoded.count.sum(), formatBytes(s.encoded.bytes.sum()), s.encoded.percentile(0.5), s.encoded.percentile(0.99), s.encodeMicros(),
+							s.decoded.count.sum(), formatBytes(s.decoded.bytes.sum()), s.decoded.percentile(0.5), s.decoded.percentile(0.99), s.decodeMicros());
+				})
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * @return The TE classes with the most {@link PacketUpdateTE} bytes
+	 */
+	public static List<String> topTileEntityClasses(int limit) {
+		return top(teClasses, limit);
+	}
+
+	/**
+	 * @return The TE positions with the most {@link PacketUpdateTE} bytes
+	 */
+	public static List<String> topTileEntityPositions(int limit) {
+		return top(tePositions, limit);
+	}
+
+	private static List<String> top(Map<String, LongAdder> map, int limit) {
+		return map.entrySet().stream()
+				.sorted(Comparator.comparingLong((Map.Entry<String, LongAdder> e) -> e.getValue().sum()).reversed())
+				.limit(limit)
+				.map(e -> e.getKey() + ": " + formatBytes(e.getValue().sum()))
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Appends one row per packet class to {@code file}
+	 */
+	public static void dumpCSV(File file) throws IOException {
+		boolean header = !file.exists();
+		try (PrintWriter out = new PrintWriter(new FileWriter(file, true))) {
+			if (header) {
+				out.println(CSV_HEADER);
+			}
+			long time = System.currentTimeMillis();
+			for (Map.Entry<Class<?>, PacketStats> e : packets.entrySet()) {
+				PacketStats s = e.getValue();
+				out.println(String.format(Locale.ROOT, "%d,%s,%d,%d,%d,%d,%.1f,%d,%d,%d,%d,%.1f,%d,%d,%d,%d,%d", time, e.getKey().getName(),
+						s.encoded.count.sum(), s.encoded.bytes.sum(), s.encoded.percentile(0.5), s.encoded.percentile(0.99), s.encodeMicros(),
+						s.decoded.count.sum(), s.decoded.bytes.sum(), s.decoded.percentile(0.5), s.decoded.percentile(0.99), s.decodeMicros(),
+						s.sends[0].sum(), s.sends[1].sum(), s.sends[2].sum(), s.sends[3].sum(), s.sends[4].sum()));
+			}
+		}
+	}
+
+	/**
+	 * Dumps the statistics to {@code file} every {@code seconds}, {@code null} to stop
+	 */
+	public static void setPeriodicDump(File file, int seconds) {
+		csvFile = file;
+		csvInterval = seconds * 20;
+		ticks = 0;
+	}
+
+	/**
+	 * Called at the end of every server tick
+	 */
+	public static void tick() {
+		if (csvFile == null || ++ticks < csvInterval) return;
+		ticks = 0;
+		try {
+			dumpCSV(csvFile);
+		} catch (IOException e) {
+			log.error("Couldn't write %s, stopping periodic dumps", e, csvFile);
+			csvFile = null;
+		}
+	}
+
+	private static String formatBytes(long bytes) {
+		if (bytes < 1024) return bytes + " B";
+		if (bytes < 1024 * 1024) return String.format(Locale.ROOT, "%.1f KB", bytes / 1024d);
+		return String.format(Locale.ROOT, "%.1f MB", bytes / (1024d * 1024d));
+	}
+
+	enum SendPath {
+		TO, ALL, ALL_AROUND, DIMENSION, SERVER
+	}
+
+	private static class PacketStats {
+
+		private final SizeHistogram encoded = new SizeHistogram();
+		private final SizeHistogram decoded = new SizeHistogram();
+		private final LongAdder encodeNanos = new LongAdder();
+		private final LongAdder decodeNanos = new LongAdder();
+		private final LongAdder[] sends = new LongAdder[SendPath.values().length];
+
+		private PacketStats() {
+			for (int i = 0; i < sends.length; i++) {
+				sends[i] = new LongAdder();
+			}
+		}
+
+		private double encodeMicros() {
+			long count = encoded.count.sum();
+			return count == 0 ? 0 : encodeNanos.sum() / 1000d / count;
+		}
+
+		private double decodeMicros() {
+			long count = decoded.count.sum();
+			return count == 0 ? 0 : decodeNanos.sum() / 1000d / count;
+		}
+
+	}
+
+	/**
+	 * Log-linear buckets with 16 sub-buckets per power of two, percentiles are accurate to about 6%
+	 */
+	private static class SizeHistogram {
+
+		private static final int SUB_BUCKETS = 16;
+
+		private final AtomicLongArray buckets = new AtomicLongArray(28 * SUB_BUCKETS);
+		private final LongAdder count = new LongAdder();
+		private final LongAdder bytes = new LongAdder();
+
+		private void record(int size) {
+			buckets.incrementAndGet(bucket(size));
+			count.increment();
+			bytes.add(size);
+		}
+
+		/**
+		 * @return The upper bound of the bucket the percentile falls in
+		 */
+		private int percentile(double p) {
+			long total = 0;
+			for (int i = 0; i < buckets.length(); i++) {
+				total += buckets.get(i);
+			}
+			if (total == 0) return 0;
+			long target = (long)Math.ceil(p * total);
+			long seen = 0;
+			for (int i = 0; i < buckets.length(); i++) {
+				seen += buckets.get(i);
+				if (seen >= target) return upperBound(i);
+			}
+			return upperBound(buckets.length() - 1);
+		}
+
+		private static int bucket(int size) {
+			if (size < SUB_BUCKETS) return Math.max(size, 0);
+			int exp = 31 - Integer.numberOfLeadingZeros(size);
+			int sub = (size >>> (exp - 4)) & (SUB_BUCKETS - 1);
+			return (exp - 3) * SUB_BUCKETS + sub;
+		}
+
+		private static int upperBound(int bucket) {
+			if (bucket < SUB_BUCKETS) return bucket;
+			int exp = bucket / SUB_BUCKETS + 3;
+			int sub = bucket % SUB_BUCKETS;
+			return (int)(((long)(SUB_BUCKETS + sub + 1) << (exp - 4)) - 1);
+		}
+
+	}
+
+}
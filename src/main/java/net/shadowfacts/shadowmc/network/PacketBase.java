@@ -14,10 +14,11 @@ import net.shadowfacts.mirror.Mirror;
 import net.shadowfacts.mirror.MirrorClass;
 import net.shadowfacts.mirror.MirrorField;
 import net.shadowfacts.shadowlib.util.Pair;
+import net.shadowfacts.shadowmc.util.ReflectionUtil;
 import net.shadowfacts.shadowmc.util.Vector3d;
 
 import java.io.IOException;
-import java.lang.reflect.Modifier;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
@@ -27,7 +28,16 @@ import java.util.UUID;
  */
 public abstract class PacketBase<REQ extends PacketBase, REPLY extends IMessage> implements IMessage, IMessageHandler<REQ, REPLY> {
 
-	private static Map<MirrorClass<?>, Pair<Reader, Writer>> handlers = new HashMap<>();
+	/**
+	 * Copy-on-write, adding handlers replaces the whole map so netty threads never need to lock
+	 */
+	private static volatile Map<MirrorClass<?>, Pair<Reader, Writer>> handlers = Collections.emptyMap();
+
+	/**
+	 * Packets use the {@code *_PacketCodec} generated at compile time if there is one, or a {@link PacketPlan}.
+	 * Plans hold the handlers that were registered when they were built, so adding handlers discards them.
+	 */
+	private static volatile ClassValue<PacketCodec> codecs = newCodecCache();
 
 	static {
 		addHandlers(byte.class, PacketBuffer::readByte, (b, buf) -> buf.writeByte(b));
@@ -60,47 +70,50 @@ public abstract class PacketBase<REQ extends PacketBase, REPLY extends IMessage>
 		addHandlers(EnumHand.class, buf -> buf.readBoolean() ? EnumHand.MAIN_HAND : EnumHand.OFF_HAND, (val, buf) -> buf.writeBoolean(val == EnumHand.MAIN_HAND));
 	}
 
+	/**
+	 * Payloads above {@link net.shadowfacts.shadowmc.ShadowMCConfig#compressionThreshold} are deflated, override
+	 * {@link #readPayload(ByteBuf)} to customize the encoding
+	 */
 	@Override
 	public void fromBytes(ByteBuf buf) {
+		long start = System.nanoTime();
+		int bytes = buf.readableBytes();
+		readPayload(PacketCompression.read(buf));
+		NetStats.recordDecode(getClass(), bytes, System.nanoTime() - start);
+	}
+
+	/**
+	 * Payloads above {@link net.shadowfacts.shadowmc.ShadowMCConfig#compressionThreshold} are deflated, override
+	 * {@link #writePayload(ByteBuf)} to customize the encoding
+	 */
+	@Override
+	public void toBytes(ByteBuf buf) {
+		long start = System.nanoTime();
+		int index = buf.writerIndex();
+		PacketCompression.write(buf, this::writePayload);
+		NetStats.recordEncode(getClass(), buf.writerIndex() - index, System.nanoTime() - start);
+	}
+
+	@SuppressWarnings("unchecked")
+	protected void readPayload(ByteBuf buf) {
 		PacketBuffer packetBuf = new PacketBuffer(buf);
 		try {
-			Mirror.of(getClass())
-					.declaredFields()
-					.filter(PacketBase::accepts)
-					.forEach(f -> read(f, packetBuf));
+			codecs.get(getClass()).read(this, packetBuf);
 		} catch (Exception e) {
 			throw new RuntimeException("Couldn't read packet " + getClass().getName(), e);
 		}
 	}
 
-	@Override
-	public void toBytes(ByteBuf buf) {
+	@SuppressWarnings("unchecked")
+	protected void writePayload(ByteBuf buf) {
 		PacketBuffer packetBuf = new PacketBuffer(buf);
 		try {
-			Mirror.of(getClass())
-					.declaredFields()
-					.filter(PacketBase::accepts)
-					.forEach(f -> write(f, packetBuf));
+			codecs.get(getClass()).write(this, packetBuf);
 		} catch (Exception e) {
 			throw new RuntimeException("Couldn't write packet " + getClass().getName(), e);
 		}
 	}
 
-	private void read(MirrorField f, PacketBuffer buf) {
-		f.setAccessible(true);
-		f.set(this, getHandlers(f).getLeft().read(buf));
-	}
-
-	private void write(MirrorField f, PacketBuffer buf) {
-		f.setAccessible(true);
-		getHandlers(f).getRight().write(f.get(this), buf);
-	}
-
-	private static boolean accepts(MirrorField f) {
-		return !f.isFinal() && !f.isStatic() && !f.hasModifier(Modifier.TRANSIENT) &&
-				handlers.containsKey(f.type());
-	}
-
 	public static Pair<Reader, Writer> getHandlers(MirrorField f) {
 		return getHandlers(f.type());
 	}
@@ -110,7 +123,22 @@ public abstract class PacketBase<REQ extends PacketBase, REPLY extends IMessage>
 	}
 
 	public static <T> void addHandlers(Class<T> type, Reader<T> reader, Writer<T> writer) {
-		handlers.put(Mirror.of(type), new Pair<>(reader, writer));
+		synchronized (PacketBase.class) {
+			Map<MirrorClass<?>, Pair<Reader, Writer>> copy = new HashMap<>(handlers);
+			copy.put(Mirror.of(type), new Pair<>(reader, writer));
+			handlers = Collections.unmodifiableMap(copy);
+			codecs = newCodecCache();
+		}
+	}
+
+	private static ClassValue<PacketCodec> newCodecCache() {
+		return new ClassValue<PacketCodec>() {
+			@Override
+			protected PacketCodec computeValue(Class<?> type) {
+				PacketCodec generated = ReflectionUtil.instantiateCompanion(type, "_PacketCodec");
+				return generated != null ? generated : PacketPlan.build(type);
+			}
+		};
 	}
 
 	@FunctionalInterface
@@ -0,0 +1,16 @@
+package net.shadowfacts.shadowmc.network;
+
+import net.minecraft.network.PacketBuffer;
+
+/**
+ * Writes and reads the fields of one specific {@link PacketBase} subclass.
+ *
+ * @author shadowfacts
+ */
+public interface PacketCodec<T extends PacketBase> {
+
+	void write(T packet, PacketBuffer buf);
+
+	void read(T packet, PacketBuffer buf);
+
+}
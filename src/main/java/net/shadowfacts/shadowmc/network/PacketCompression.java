@@ -0,0 +1,127 @@
+package net.shadowfacts.shadowmc.network;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.shadowfacts.shadowmc.ShadowMCConfig;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflates {@link PacketBase} payloads above {@link ShadowMCConfig#compressionThreshold}.
+ *
+ * Every packet starts with a header byte, {@link #RAW} is followed by the payload as is, {@link #DEFLATED} by the
+ * VarInt length of the payload and the deflated payload. Payloads that don't get smaller are always sent raw.
+ * Deflaters and inflaters are reused per thread.
+ *
+ * @author shadowfacts
+ */
+class PacketCompression {
+
+	static final int RAW = 0;
+	static final int DEFLATED = 1;
+
+	/**
+	 * Same as the largest payload FML can send
+	 */
+	private static final int MAX_INFLATED_SIZE = 2 * 1024 * 1024;
+
+	private static final ThreadLocal<Deflater> deflaters = ThreadLocal.withInitial(Deflater::new);
+	private static final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(Inflater::new);
+	private static final ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(() -> new byte[8192]);
+
+	/**
+	 * Writes the payload produced by {@code writer} into {@code buf}, deflated if it's big enough
+	 */
+	static void write(ByteBuf buf, PayloadWriter writer) {
+		int headerIndex = buf.writerIndex();
+		buf.writeByte(RAW);
+		int start = buf.writerIndex();
+		writer.write(buf);
+		int length = buf.writerIndex() - start;
+
+		int threshold = ShadowMCConfig.compressionThreshold;
+		if (threshold < 0 || length < threshold) return;
+
+		ByteBuf compressed;
+		if (buf.hasArray()) {
+			compressed = deflate(buf.array(), buf.arrayOffset() + start, length);
+		} else {
+			byte[] input = new byte[length];
+			buf.getBytes(start, input);
+			compressed = deflate(input, 0, length);
+		}
+		try {
+//			the header and VarInt length together are at most 6 bytes
+			if (compressed.readableBytes() + 6 >= length) return;
+			buf.writerIndex(headerIndex);
+			buf.writeByte(DEFLATED);
+			CompactEncoding.writeVarInt(buf, length);
+			buf.writeBytes(compressed);
+		} finally {
+			compressed.release();
+		}
+	}
+
+	/**
+	 * @return The payload, either {@code buf} itself or the inflated payload
+	 */
+	static ByteBuf read(ByteBuf buf) {
+		int header = buf.readByte();
+		if (header == RAW) return buf;
+		if (header != DEFLATED) {
+			throw new IllegalStateException("Unknown packet header " + header);
+		}
+
+		int length = CompactEncoding.readVarInt(buf);
+		if (length < 0 || length > MAX_INFLATED_SIZE) {
+			throw new IllegalStateException("Inflated packet too big: " + length + " bytes");
+		}
+		byte[] input = new byte[buf.readableBytes()];
+		buf.readBytes(input);
+		byte[] output = new byte[length];
+
+		Inflater inflater = inflaters.get();
+		inflater.setInput(input);
+		try {
+			int read = 0;
+			while (read < length) {
+				int n = inflater.inflate(output, read, length - read);
+				if (n == 0 && (inflater.finished() || inflater.needsInput())) break;
+				read += n;
+			}
+			if (read != length) {
+				throw new IllegalStateException("Inflated " + read + " bytes, expected " + length);
+			}
+		} catch (DataFormatException e) {
+			throw new IllegalStateException("Couldn't inflate packet", e);
+		} finally {
+			inflater.reset();
+		}
+		return Unpooled.wrappedBuffer(output);
+	}
+
+	private static ByteBuf deflate(byte[] input, int offset, int length) {
+		Deflater deflater = deflaters.get();
+		byte[] chunk = buffers.get();
+		ByteBuf out = Unpooled.buffer(length / 2);
+		deflater.setInput(input, offset, length);
+		deflater.finish();
+		try {
+			while (!deflater.finished()) {
+				int n = deflater.deflate(chunk);
+				out.writeBytes(chunk, 0, n);
+			}
+		} finally {
+			deflater.reset();
+		}
+		return out;
+	}
+
+	@FunctionalInterface
+	interface PayloadWriter {
+		void write(ByteBuf buf);
+	}
+
+}
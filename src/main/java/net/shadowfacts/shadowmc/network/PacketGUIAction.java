@@ -0,0 +1,85 @@
+package net.shadowfacts.shadowmc.network;
+
+import io.netty.buffer.ByteBuf;
+import lombok.NoArgsConstructor;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
+import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
+import net.shadowfacts.shadowmc.util.LogHelper;
+
+/**
+ * A {@link GUIActions GUI action}, the TE is looked up in the sending player's world.
+ *
+ * @author shadowfacts
+ */
+@NoArgsConstructor
+public class PacketGUIAction extends PacketBase<PacketGUIAction, IMessage> {
+
+	private static final int MAX_ARGS = 16;
+	/**
+	 * Same reach as containers use
+	 */
+	private static final double MAX_DISTANCE_SQ = 64;
+
+	private static LogHelper log = new LogHelper("ShadowMC|GUIActions");
+
+	public BlockPos pos;
+	public int action;
+	public int[] args;
+
+	public PacketGUIAction(BlockPos pos, int action, int[] args) {
+		if (args.length > MAX_ARGS) {
+			throw new IllegalArgumentException("GUI actions can have at most " + MAX_ARGS + " arguments");
+		}
+		this.pos = pos;
+		this.action = action;
+		this.args = args;
+	}
+
+	@Override
+	protected void writePayload(ByteBuf buf) {
+		buf.writeLong(pos.toLong());
+		CompactEncoding.writeVarInt(buf, action);
+		buf.writeByte(args.length);
+		for (int arg : args) {
+			CompactEncoding.writeZigZagInt(buf, arg);
+		}
+	}
+
+	@Override
+	protected void readPayload(ByteBuf buf) {
+		pos = BlockPos.fromLong(buf.readLong());
+		action = CompactEncoding.readVarInt(buf);
+		int count = buf.readUnsignedByte();
+		if (count > MAX_ARGS) {
+			throw new IllegalArgumentException("GUI action with " + count + " arguments");
+		}
+		args = new int[count];
+		for (int i = 0; i < count; i++) {
+			args[i] = CompactEncoding.readZigZagInt(buf);
+		}
+	}
+
+	@Override
+	public IMessage onMessage(PacketGUIAction msg, MessageContext ctx) {
+		EntityPlayerMP player = ctx.getServerHandler().playerEntity;
+		player.getServerWorld().addScheduledTask(() -> {
+			World world = player.worldObj;
+			if (!world.isBlockLoaded(msg.pos) || player.getDistanceSq(msg.pos.getX() + 0.5, msg.pos.getY() + 0.5, msg.pos.getZ() + 0.5) > MAX_DISTANCE_SQ) return;
+
+			TileEntity te = world.getTileEntity(msg.pos);
+			if (te == null) return;
+			GUIActionHandler<TileEntity> handler = GUIActions.get(te.getClass(), msg.action);
+			if (handler != null) {
+				handler.handle(te, player, msg.args);
+			} else {
+				log.warn("%s sent unknown GUI action %d for %s", player.getName(), msg.action, te.getClass().getName());
+			}
+		});
+		return null;
+	}
+
+}
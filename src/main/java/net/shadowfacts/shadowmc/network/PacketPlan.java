@@ -0,0 +1,240 @@
+package net.shadowfacts.shadowmc.network;
+
+import net.minecraft.network.PacketBuffer;
+import net.shadowfacts.mirror.Mirror;
+import net.shadowfacts.shadowlib.util.Pair;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The runtime codec for a {@link PacketBase} subclass without a {@code *_PacketCodec}.
+ *
+ * Built once per class by {@link PacketBase}, the fields are resolved in declaration order with their reader/writer
+ * bound and accessed through {@link MethodHandle}s, so encoding a packet is a simple loop without any lookups.
+ * {@link CompactPacket} booleans are written first as one bitfield, followed by all other fields.
+ *
+ * @author shadowfacts
+ */
+class PacketPlan implements PacketCodec<PacketBase> {
+
+	private final MethodHandle[] booleanGetters;
+	private final MethodHandle[] booleanSetters;
+	private final Entry[] entries;
+
+	private PacketPlan(MethodHandle[] booleanGetters, MethodHandle[] booleanSetters, Entry[] entries) {
+		this.booleanGetters = booleanGetters;
+		this.booleanSetters = booleanSetters;
+		this.entries = entries;
+	}
+
+	@Override
+	public void write(PacketBase packet, PacketBuffer buf) {
+		try {
+			for (int i = 0; i < booleanGetters.length; i += 8) {
+				int bits = 0;
+				for (int j = 0; j < 8 && i + j < booleanGetters.length; j++) {
+					if ((boolean)booleanGetters[i + j].invokeExact((Object)packet)) bits |= 1 << j;
+				}
+				buf.writeByte(bits);
+			}
+			for (Entry e : entries) {
+				e.write(packet, buf);
+			}
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable t) {
+			throw new RuntimeException(t);
+		}
+	}
+
+	@Override
+	public void read(PacketBase packet, PacketBuffer buf) {
+		try {
+			for (int i = 0; i < booleanSetters.length; i += 8) {
+				int bits = buf.readUnsignedByte();
+				for (int j = 0; j < 8 && i + j < booleanSetters.length; j++) {
+					booleanSetters[i + j].invokeExact((Object)packet, (bits & (1 << j)) != 0);
+				}
+			}
+			for (Entry e : entries) {
+				e.read(packet, buf);
+			}
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable t) {
+			throw new RuntimeException(t);
+		}
+	}
+
+	/**
+	 * Same selection as before plans were cached: declared fields that aren't final, static or transient and have
+	 * handlers registered for their exact type, compact fields may also be enums without handlers
+	 */
+	static PacketPlan build(Class<?> clazz) {
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		boolean compactClass = clazz.isAnnotationPresent(CompactPacket.class);
+		List<MethodHandle> booleanGetters = new ArrayList<>();
+		List<MethodHandle> booleanSetters = new ArrayList<>();
+		List<Entry> entries = new ArrayList<>();
+
+		for (Field f : clazz.getDeclaredFields()) {
+			int mods = f.getModifiers();
+			if (Modifier.isFinal(mods) || Modifier.isStatic(mods) || Modifier.isTransient(mods)) continue;
+
+			Class<?> type = f.getType();
+			boolean compact = compactClass || f.isAnnotationPresent(CompactPacket.class);
+			Pair<PacketBase.Reader, PacketBase.Writer> handlers = PacketBase.getHandlers(Mirror.of(type));
+			if (handlers == null && !(compact && type.isEnum())) continue;
+
+			f.setAccessible(true);
+			MethodHandle getter;
+			MethodHandle setter;
+			try {
+				getter = lookup.unreflectGetter(f);
+				setter = lookup.unreflectSetter(f);
+			} catch (IllegalAccessException e) {
+				throw new RuntimeException("Couldn't access " + clazz.getName() + "." + f.getName(), e);
+			}
+
+			if (compact && type == boolean.class) {
+				booleanGetters.add(getter.asType(MethodType.methodType(boolean.class, Object.class)));
+				booleanSetters.add(setter.asType(MethodType.methodType(void.class, Object.class, boolean.class)));
+			} else if (compact && (type == int.class || type == short.class || type == char.class)) {
+				entries.add(new VarIntEntry(getter, setter, type));
+			} else if (compact && type == long.class) {
+				entries.add(new VarLongEntry(getter, setter));
+			} else if (compact && type.isEnum()) {
+				entries.add(new EnumEntry(getter, setter, type.getEnumConstants()));
+			} else {
+				entries.add(new HandlerEntry(getter, setter, handlers.getLeft(), handlers.getRight()));
+			}
+		}
+
+		return new PacketPlan(booleanGetters.toArray(new MethodHandle[booleanGetters.size()]), booleanSetters.toArray(new MethodHandle[booleanSetters.size()]), entries.toArray(new Entry[entries.size()]));
+	}
+
+	private static abstract class Entry {
+
+		abstract void write(Object packet, PacketBuffer buf) throws Throwable;
+
+		abstract void read(Object packet, PacketBuffer buf) throws Throwable;
+
+	}
+
+	private static class HandlerEntry extends Entry {
+
+		private final MethodHandle getter;
+		private final MethodHandle setter;
+		private final PacketBase.Reader reader;
+		private final PacketBase.Writer writer;
+
+		private HandlerEntry(MethodHandle getter, MethodHandle setter, PacketBase.Reader reader, PacketBase.Writer writer) {
+			this.getter = getter.asType(MethodType.methodType(Object.class, Object.class));
+			this.setter = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+			this.reader = reader;
+			this.writer = writer;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		void write(Object packet, PacketBuffer buf) throws Throwable {
+			writer.write(getter.invokeExact(packet), buf);
+		}
+
+		@Override
+		void read(Object packet, PacketBuffer buf) throws Throwable {
+			setter.invokeExact(packet, reader.read(buf));
+		}
+
+	}
+
+	/**
+	 * {@code int} and {@code short} are ZigZag encoded, {@code char} is unsigned already
+	 */
+	private static class VarIntEntry extends Entry {
+
+		private final MethodHandle getter;
+		private final MethodHandle setter;
+		private final boolean zigZag;
+
+		private VarIntEntry(MethodHandle getter, MethodHandle setter, Class<?> type) {
+			this.getter = getter.asType(MethodType.methodType(int.class, Object.class));
+			this.setter = MethodHandles.explicitCastArguments(setter, MethodType.methodType(void.class, Object.class, int.class));
+			this.zigZag = type != char.class;
+		}
+
+		@Override
+		void write(Object packet, PacketBuffer buf) throws Throwable {
+			int value = (int)getter.invokeExact(packet);
+			if (zigZag) {
+				CompactEncoding.writeZigZagInt(buf, value);
+			} else {
+				CompactEncoding.writeVarInt(buf, value);
+			}
+		}
+
+		@Override
+		void read(Object packet, PacketBuffer buf) throws Throwable {
+			setter.invokeExact(packet, zigZag ? CompactEncoding.readZigZagInt(buf) : CompactEncoding.readVarInt(buf));
+		}
+
+	}
+
+	private static class VarLongEntry extends Entry {
+
+		private final MethodHandle getter;
+		private final MethodHandle setter;
+
+		private VarLongEntry(MethodHandle getter, MethodHandle setter) {
+			this.getter = getter.asType(MethodType.methodType(long.class, Object.class));
+			this.setter = setter.asType(MethodType.methodType(void.class, Object.class, long.class));
+		}
+
+		@Override
+		void write(Object packet, PacketBuffer buf) throws Throwable {
+			CompactEncoding.writeZigZagLong(buf, (long)getter.invokeExact(packet));
+		}
+
+		@Override
+		void read(Object packet, PacketBuffer buf) throws Throwable {
+			setter.invokeExact(packet, CompactEncoding.readZigZagLong(buf));
+		}
+
+	}
+
+	/**
+	 * Ordinal + 1 so that 0 can mean {@code null}
+	 */
+	private static class EnumEntry extends Entry {
+
+		private final MethodHandle getter;
+		private final MethodHandle setter;
+		private final Object[] constants;
+
+		private EnumEntry(MethodHandle getter, MethodHandle setter, Object[] constants) {
+			this.getter = getter.asType(MethodType.methodType(Object.class, Object.class));
+			this.setter = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+			this.constants = constants;
+		}
+
+		@Override
+		void write(Object packet, PacketBuffer buf) throws Throwable {
+			Object value = getter.invokeExact(packet);
+			CompactEncoding.writeVarInt(buf, value == null ? 0 : ((Enum)value).ordinal() + 1);
+		}
+
+		@Override
+		void read(Object packet, PacketBuffer buf) throws Throwable {
+			int ordinal = CompactEncoding.readVarInt(buf);
+			setter.invokeExact(packet, ordinal == 0 ? null : constants[ordinal - 1]);
+		}
+
+	}
+
+}
@@ -2,13 +2,15 @@ package net.shadowfacts.shadowmc.network;
 
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
+import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.server.MinecraftServer;
+import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.WorldServer;
+import net.minecraftforge.common.DimensionManager;
 import net.minecraftforge.fml.common.FMLCommonHandler;
-import net.minecraftforge.fml.common.network.NetworkRegistry;
 import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
 import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
-import net.shadowfacts.shadowmc.ShadowMC;
 import net.shadowfacts.shadowmc.tileentity.BaseTileEntity;
 
 /**
@@ -30,8 +32,16 @@ public class PacketRequestTEUpdate extends PacketBase<PacketRequestTEUpdate, IMe
 		MinecraftServer server = FMLCommonHandler.instance().getMinecraftServerInstance();
 		int dim = msg.dim;
 		BlockPos pos = msg.pos;
+		EntityPlayerMP player = ctx.getServerHandler().playerEntity;
 		server.addScheduledTask(() -> {
-			ShadowMC.network.sendToAllAround(new PacketUpdateTE((BaseTileEntity)server.worldServerForDimension(dim).getTileEntity(pos)), new NetworkRegistry.TargetPoint(dim, pos.getX(), pos.getY(), pos.getZ(), 64));
+			WorldServer world = DimensionManager.getWorld(dim);
+//			only TEs the requester can see, the request must not load chunks or worlds
+			if (world == null || !world.isBlockLoaded(pos) || !world.getPlayerChunkMap().isPlayerWatchingChunk(player, pos.getX() >> 4, pos.getZ() >> 4)) return;
+			TileEntity te = world.getTileEntity(pos);
+			if (te instanceof BaseTileEntity) {
+//				only the requester is missing the state, queued so it can't overtake a pending delta
+				TEUpdateBatcher.sendTo(((BaseTileEntity)te).createFullUpdate(), player);
+			}
 		});
 		return null;
 	}
@@ -1,48 +1,136 @@
 package net.shadowfacts.shadowmc.network;
 
-import lombok.AllArgsConstructor;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import lombok.NoArgsConstructor;
 import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.network.PacketBuffer;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 import net.minecraftforge.fml.common.FMLCommonHandler;
+import net.minecraftforge.fml.common.network.ByteBufUtils;
 import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
 import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
 import net.minecraftforge.fml.relauncher.Side;
 import net.shadowfacts.shadowmc.ShadowMC;
+import net.shadowfacts.shadowmc.nbt.NBTStreamReader;
 import net.shadowfacts.shadowmc.tileentity.BaseTileEntity;
 
 /**
  * @author shadowfacts
  */
 @NoArgsConstructor
-@AllArgsConstructor
 public class PacketUpdateTE extends PacketBase<PacketUpdateTE, IMessage> {
 
 	public int dim;
 	public BlockPos pos;
-	public NBTTagCompound tag;
+	/**
+	 * Only set for packets created from a tag, use {@link #getTag()}
+	 */
+	private NBTTagCompound tag;
+	/**
+	 * The delta sync sequence the tag corresponds to, -1 if the TE doesn't use delta syncing
+	 */
+	public int seq = -1;
+	/**
+	 * The encoded tag, when set it's sent instead of {@link #tag}. Packets created from a TE and all received packets
+	 * only have this, so the tag is never built as a tree, see {@link #getTag()}.
+	 */
+	private byte[] data;
+	/**
+	 * The class of the TE the packet was created from, only used for {@link NetStats}
+	 */
+	private String teClass;
+
+	public PacketUpdateTE(int dim, BlockPos pos, NBTTagCompound tag, int seq) {
+		this.dim = dim;
+		this.pos = pos;
+		this.tag = tag;
+		this.seq = seq;
+	}
+
+	public PacketUpdateTE(int dim, BlockPos pos, NBTTagCompound tag) {
+		this(dim, pos, tag, -1);
+	}
 
 	public PacketUpdateTE(BaseTileEntity te) {
-		this(te.getWorld().provider.getDimension(), te.getPos(), te.writeToNBT(new NBTTagCompound()));
+		this(te.getWorld().provider.getDimension(), te.getPos(), null, te.getSyncSeq());
+		teClass = te.getClass().getName();
+		ByteBuf buf = PooledByteBufAllocator.DEFAULT.buffer();
+		try {
+			te.writeToStream(buf);
+			data = new byte[buf.readableBytes()];
+			buf.readBytes(data);
+		} finally {
+			buf.release();
+		}
+	}
+
+	/**
+	 * @return The tag, decoded from the received bytes if necessary
+	 */
+	public NBTTagCompound getTag() {
+		if (tag == null && data != null) {
+			tag = ByteBufUtils.readTag(Unpooled.wrappedBuffer(data));
+		}
+		return tag;
+	}
+
+	/**
+	 * Same format as the generated codec would use
+	 */
+	@Override
+	protected void writePayload(ByteBuf buf) {
+		buf.writeInt(dim);
+		new PacketBuffer(buf).writeBlockPos(pos);
+		int index = buf.writerIndex();
+		if (data != null) {
+			buf.writeBytes(data);
+		} else {
+			ByteBufUtils.writeTag(buf, tag);
+		}
+		NetStats.recordTileEntity(teClass, dim, pos, buf.writerIndex() - index);
+		buf.writeInt(seq);
+	}
+
+	@Override
+	protected void readPayload(ByteBuf buf) {
+		dim = buf.readInt();
+		pos = new PacketBuffer(buf).readBlockPos();
+		data = new byte[NBTStreamReader.length(buf)];
+		buf.readBytes(data);
+		seq = buf.readInt();
 	}
 
 	@Override
 	public IMessage onMessage(PacketUpdateTE msg, MessageContext ctx) {
 		if (ctx.side == Side.CLIENT) {
-			World world = ShadowMC.proxy.getClientWorld();
-			TileEntity te = world.getTileEntity(msg.pos);
-			if (te instanceof BaseTileEntity) {
-				te.readFromNBT(msg.tag);
-			}
+			TEUpdateQueue.CLIENT.enqueue(msg.dim, msg.pos, true, () -> {
+				World world = ShadowMC.proxy.getClientWorld();
+				TileEntity te = world == null || world.provider.getDimension() != msg.dim ? null : world.getTileEntity(msg.pos);
+				if (te instanceof BaseTileEntity) {
+					if (msg.data != null) {
+						((BaseTileEntity)te).handleUpdate(Unpooled.wrappedBuffer(msg.data), msg.seq);
+					} else {
+						((BaseTileEntity)te).handleUpdate(msg.tag, msg.seq);
+					}
+				}
+			});
 		} else {
-			World world = FMLCommonHandler.instance().getMinecraftServerInstance().worldServerForDimension(msg.dim);
-			TileEntity te = world.getTileEntity(msg.pos);
-			if (te instanceof BaseTileEntity) {
-				te.readFromNBT(msg.tag);
-				te.markDirty();
-			}
+			TEUpdateQueue.SERVER.enqueue(msg.dim, msg.pos, true, () -> {
+				World world = FMLCommonHandler.instance().getMinecraftServerInstance().worldServerForDimension(msg.dim);
+				TileEntity te = world.getTileEntity(msg.pos);
+				if (te instanceof BaseTileEntity) {
+					if (msg.data != null) {
+						((BaseTileEntity)te).readFromStream(Unpooled.wrappedBuffer(msg.data));
+					} else {
+						te.readFromNBT(msg.tag);
+					}
+					te.markDirty();
+				}
+			});
 		}
 		return null;
 	}
@@ -0,0 +1,66 @@
+package net.shadowfacts.shadowmc.network;
+
+import io.netty.buffer.ByteBuf;
+import lombok.NoArgsConstructor;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
+import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Many {@link PacketUpdateTE}s and {@link PacketUpdateTEDelta}s sent to one player in a single packet, built by
+ * {@link TEUpdateBatcher}. The updates are applied in the order they were queued.
+ *
+ * @author shadowfacts
+ */
+@NoArgsConstructor
+public class PacketUpdateTEBatch extends PacketBase<PacketUpdateTEBatch, IMessage> {
+
+	private static final int FULL = 0;
+	private static final int DELTA = 1;
+
+	public List<PacketBase<?, IMessage>> updates;
+
+	public PacketUpdateTEBatch(List<PacketBase<?, IMessage>> updates) {
+		this.updates = updates;
+	}
+
+	/**
+	 * The updates are only compressed as part of the batch
+	 */
+	@Override
+	protected void writePayload(ByteBuf buf) {
+		CompactEncoding.writeVarInt(buf, updates.size());
+		for (PacketBase<?, IMessage> update : updates) {
+			buf.writeByte(update instanceof PacketUpdateTEDelta ? DELTA : FULL);
+			update.writePayload(buf);
+		}
+	}
+
+	@Override
+	protected void readPayload(ByteBuf buf) {
+		int size = CompactEncoding.readVarInt(buf);
+		updates = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			PacketBase<?, IMessage> update = buf.readByte() == DELTA ? new PacketUpdateTEDelta() : new PacketUpdateTE();
+			update.readPayload(buf);
+			updates.add(update);
+		}
+	}
+
+	@Override
+	public IMessage onMessage(PacketUpdateTEBatch msg, MessageContext ctx) {
+		for (PacketBase<?, IMessage> update : msg.updates) {
+			if (update instanceof PacketUpdateTEDelta) {
+				PacketUpdateTEDelta delta = (PacketUpdateTEDelta)update;
+				delta.onMessage(delta, ctx);
+			} else {
+				PacketUpdateTE full = (PacketUpdateTE)update;
+				full.onMessage(full, ctx);
+			}
+		}
+		return null;
+	}
+
+}
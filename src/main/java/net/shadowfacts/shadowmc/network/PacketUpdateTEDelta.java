@@ -0,0 +1,49 @@
+package net.shadowfacts.shadowmc.network;
+
+import lombok.NoArgsConstructor;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraftforge.common.util.Constants;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
+import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
+import net.shadowfacts.shadowmc.ShadowMC;
+import net.shadowfacts.shadowmc.tileentity.BaseTileEntity;
+
+/**
+ * Sends only the auto-serialized fields of a {@link BaseTileEntity} that changed since the previous sync.
+ *
+ * @author shadowfacts
+ */
+@NoArgsConstructor
+public class PacketUpdateTEDelta extends PacketBase<PacketUpdateTEDelta, IMessage> {
+
+	public int dim;
+	public BlockPos pos;
+	public int seq;
+	public NBTTagCompound tag;
+
+	public PacketUpdateTEDelta(BaseTileEntity te, int seq, NBTTagCompound changed, NBTTagList removed) {
+		this.dim = te.getWorld().provider.getDimension();
+		this.pos = te.getPos();
+		this.seq = seq;
+		this.tag = new NBTTagCompound();
+		tag.setTag("Changed", changed);
+		tag.setTag("Removed", removed);
+	}
+
+	@Override
+	public IMessage onMessage(PacketUpdateTEDelta msg, MessageContext ctx) {
+		TEUpdateQueue.CLIENT.enqueue(msg.dim, msg.pos, false, () -> {
+			World world = ShadowMC.proxy.getClientWorld();
+			TileEntity te = world == null || world.provider.getDimension() != msg.dim ? null : world.getTileEntity(msg.pos);
+			if (te instanceof BaseTileEntity) {
+				((BaseTileEntity)te).handleDelta(msg.seq, msg.tag.getCompoundTag("Changed"), msg.tag.getTagList("Removed", Constants.NBT.TAG_STRING));
+			}
+		});
+		return null;
+	}
+
+}
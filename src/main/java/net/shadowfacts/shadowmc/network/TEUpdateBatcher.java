@@ -0,0 +1,180 @@
+package net.shadowfacts.shadowmc.network;
+
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.server.management.PlayerChunkMapEntry;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
+import net.minecraftforge.fml.relauncher.ReflectionHelper;
+import net.shadowfacts.shadowmc.ShadowMC;
+import net.shadowfacts.shadowmc.tileentity.BaseTileEntity;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Server-side aggregator for tile entity updates.
+ *
+ * Instead of one packet per {@link PacketUpdateTE}/{@link PacketUpdateTEDelta} and player, updates are queued during
+ * the tick and {@link #flush()}ed at the end of it as one {@link PacketUpdateTEBatch} per player. Players receive the
+ * updates in the order they were queued.
+ * Updates only go to players watching the chunk of the TE, so players that don't have it loaded never receive them.
+ *
+ * Only accessed from the server thread.
+ *
+ * @author shadowfacts
+ */
+public class TEUpdateBatcher {
+
+	/**
+	 * Upper bound for the number of updates in one batch, a busy tick is split into several batches of at most this
+	 * many updates rather than one huge packet. It doesn't limit the size in bytes, large updates are only bounded by
+	 * the packet size limit itself
+	 */
+	private static final int MAX_BATCH_SIZE = 256;
+
+	private static final List<Pending> pending = new ArrayList<>();
+
+	/**
+	 * {@link PlayerChunkMapEntry} doesn't expose its players
+	 */
+	private static final MethodHandle ENTRY_PLAYERS;
+
+	static {
+		try {
+			Field f = ReflectionHelper.findField(PlayerChunkMapEntry.class, "players", "field_187283_c");
+			ENTRY_PLAYERS = MethodHandles.lookup().unreflectGetter(f).asType(MethodType.methodType(List.class, PlayerChunkMapEntry.class));
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException("Couldn't access PlayerChunkMapEntry.players", e);
+		}
+	}
+
+	/**
+	 * Queues an update for the players watching the chunk of {@code te}, limited to its {@link BaseTileEntity#getSyncRadius()}
+	 */
+	public static void sendToWatchers(PacketUpdateTE packet, BaseTileEntity te) {
+		pending.add(new Pending(packet, te));
+	}
+
+	/**
+	 * Queues an update for the players watching the chunk of {@code te}, limited to its {@link BaseTileEntity#getSyncRadius()}
+	 */
+	public static void sendToWatchers(PacketUpdateTEDelta packet, BaseTileEntity te) {
+		pending.add(new Pending(packet, te));
+	}
+
+	/**
+	 * Queues an update for a single player, e.g. the answer to a {@link PacketRequestTEUpdate}
+	 */
+	public static void sendTo(PacketUpdateTE packet, EntityPlayerMP player) {
+		pending.add(new Pending(packet, player));
+	}
+
+	/**
+	 * Drops all queued updates, called when the server stops
+	 */
+	public static void clear() {
+		pending.clear();
+	}
+
+	/**
+	 * Sends all queued updates, called at the end of every server tick
+	 */
+	public static void flush() {
+		if (pending.isEmpty()) return;
+
+		Map<EntityPlayerMP, List<PacketBase<?, IMessage>>> byPlayer = new LinkedHashMap<>();
+		Map<World, Map<ChunkPos, List<EntityPlayerMP>>> watchers = new HashMap<>();
+		for (Pending p : pending) {
+			if (p.player != null) {
+				byPlayer.computeIfAbsent(p.player, k -> new ArrayList<>()).add(p.packet);
+				continue;
+			}
+			if (!(p.world instanceof WorldServer)) continue;
+
+			WorldServer world = (WorldServer)p.world;
+//			the same chunk usually has many updates, so only resolve its watchers once per tick
+			List<EntityPlayerMP> players = watchers.computeIfAbsent(world, k -> new HashMap<>()).computeIfAbsent(new ChunkPos(p.pos), k -> getWatchers(world, k.chunkXPos, k.chunkZPos));
+
+			double rangeSq = (double)p.radius * p.radius;
+			for (EntityPlayerMP player : players) {
+				if (p.radius < 0 || player.getDistanceSq(p.pos.getX() + 0.5, p.pos.getY() + 0.5, p.pos.getZ() + 0.5) < rangeSq) {
+					byPlayer.computeIfAbsent(player, k -> new ArrayList<>()).add(p.packet);
+				}
+			}
+		}
+		pending.clear();
+
+		for (Map.Entry<EntityPlayerMP, List<PacketBase<?, IMessage>>> e : byPlayer.entrySet()) {
+			List<PacketBase<?, IMessage>> updates = e.getValue();
+			if (updates.size() == 1) {
+//				no point in the batch overhead for a single update
+				ShadowMC.network.sendTo(updates.get(0), e.getKey());
+				continue;
+			}
+			for (int i = 0; i < updates.size(); i += MAX_BATCH_SIZE) {
+				ShadowMC.network.sendTo(new PacketUpdateTEBatch(updates.subList(i, Math.min(i + MAX_BATCH_SIZE, updates.size()))), e.getKey());
+			}
+		}
+	}
+
+	/**
+	 * @return The players that have the chunk of {@code te} loaded
+	 */
+	public static List<EntityPlayerMP> getWatchers(BaseTileEntity te) {
+		if (!(te.getWorld() instanceof WorldServer)) return Collections.emptyList();
+		return getWatchers((WorldServer)te.getWorld(), te.getPos().getX() >> 4, te.getPos().getZ() >> 4);
+	}
+
+	/**
+	 * Players that have the chunk loaded, straight from its {@link PlayerChunkMapEntry}. Nobody has the chunk if there
+	 * is no entry or it hasn't been sent yet, players get the current state with the chunk once it is.
+	 */
+	@SuppressWarnings("unchecked")
+	private static List<EntityPlayerMP> getWatchers(WorldServer world, int chunkX, int chunkZ) {
+		PlayerChunkMapEntry entry = world.getPlayerChunkMap().getEntry(chunkX, chunkZ);
+		if (entry == null || !entry.isSentToPlayers()) return Collections.emptyList();
+		try {
+			return new ArrayList<>((List<EntityPlayerMP>)ENTRY_PLAYERS.invokeExact(entry));
+		} catch (Throwable t) {
+			throw new RuntimeException("Couldn't get the players watching chunk " + chunkX + ", " + chunkZ, t);
+		}
+	}
+
+	private static class Pending {
+
+		private final PacketBase<?, IMessage> packet;
+		private final EntityPlayerMP player;
+		private final World world;
+		private final BlockPos pos;
+		private final int radius;
+
+		private Pending(PacketBase<?, IMessage> packet, BaseTileEntity te) {
+			this.packet = packet;
+			this.player = null;
+			this.world = te.getWorld();
+			this.pos = te.getPos();
+			this.radius = te.getSyncRadius();
+		}
+
+		private Pending(PacketBase<?, IMessage> packet, EntityPlayerMP player) {
+			this.packet = packet;
+			this.player = player;
+			this.world = null;
+			this.pos = null;
+			this.radius = -1;
+		}
+
+	}
+
+}
@@ -0,0 +1,247 @@
+package net.shadowfacts.shadowmc.network;
+
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.shadowfacts.shadowmc.ShadowMC;
+import net.shadowfacts.shadowmc.ShadowMCConfig;
+import net.shadowfacts.shadowmc.tileentity.BaseTileEntity;
+import net.shadowfacts.shadowmc.util.LogHelper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Hands decoded tile entity updates from the netty thread to the main thread.
+ *
+ * Updates are queued per position and {@link #drain()}ed at the start of every tick until the tick's time budget
+ * ({@link ShadowMCConfig#updateApplyBudget}) is used up, whatever is left is applied in the next tick. A full update
+ * replaces everything that's still pending for its position since it would overwrite it anyway, deltas are kept in
+ * order behind it.
+ * The queue holds at most {@link #CAPACITY} updates and {@link #MAX_DELTAS} deltas per position. Past that the oldest
+ * position, or the position with too many deltas, is dropped and marked for a resync instead: once drained, the
+ * client requests a full update for it and ignores deltas for it until then.
+ *
+ * @author shadowfacts
+ */
+public class TEUpdateQueue {
+
+	public static final TEUpdateQueue CLIENT = new TEUpdateQueue("client", (dim, pos) -> {
+		World world = ShadowMC.proxy.getClientWorld();
+		TileEntity te = world == null || world.provider.getDimension() != dim ? null : world.getTileEntity(pos);
+		if (te instanceof BaseTileEntity) {
+			((BaseTileEntity)te).requestFullUpdate();
+		}
+	});
+	/**
+	 * Only receives full updates, there's nothing to resync from so positions past the capacity are just dropped
+	 */
+	public static final TEUpdateQueue SERVER = new TEUpdateQueue("server", null);
+
+	private static final int CAPACITY = 8192;
+	private static final int MAX_DELTAS = 64;
+
+	private static LogHelper log = new LogHelper("ShadowMC|TEUpdateQueue");
+
+	private final String name;
+	/**
+	 * Main thread: Requests the full state of a position whose updates were dropped, {@code null} if that's impossible
+	 */
+	private final BiConsumer<Integer, BlockPos> resync;
+
+	private final Map<Key, List<Runnable>> pending = new LinkedHashMap<>();
+	/**
+	 * Positions whose updates were dropped, bounded by {@link #CAPACITY} as well
+	 */
+	private final Set<Key> resyncs = new LinkedHashSet<>();
+	private int depth;
+	private boolean warned;
+
+	private volatile long coalesced;
+	private volatile long dropped;
+	private volatile long applied;
+	private volatile long applyTime;
+
+	private TEUpdateQueue(String name, BiConsumer<Integer, BlockPos> resync) {
+		this.name = name;
+		this.resync = resync;
+	}
+
+	/**
+	 * Called from the netty thread
+	 * @param full If the update contains the full state, i.e. makes all pending updates for the position obsolete
+	 * @param update Applies the update, run on the main thread
+	 */
+	public synchronized void enqueue(int dim, BlockPos pos, boolean full, Runnable update) {
+		Key key = new Key(dim, pos);
+		if (full) {
+			resyncs.remove(key);
+		} else if (resyncs.contains(key)) {
+//			the client ignores deltas until the full update requested by the resync arrives anyway
+			dropped++;
+			return;
+		}
+
+		List<Runnable> updates = pending.get(key);
+		if (updates == null) {
+			updates = new ArrayList<>(1);
+			pending.put(key, updates);
+		} else if (full) {
+			coalesced += updates.size();
+			depth -= updates.size();
+			updates.clear();
+		} else if (updates.size() >= MAX_DELTAS) {
+			if (resync == null) {
+				dropped++;
+				return;
+			}
+			pending.remove(key);
+			updates.add(update);
+			depth++;
+			drop(key, updates);
+			return;
+		}
+		updates.add(update);
+		depth++;
+
+		while (depth > CAPACITY) {
+			Iterator<Map.Entry<Key, List<Runnable>>> it = pending.entrySet().iterator();
+			Map.Entry<Key, List<Runnable>> oldest = it.next();
+			it.remove();
+			drop(oldest.getKey(), oldest.getValue());
+		}
+	}
+
+	private void drop(Key key, List<Runnable> updates) {
+		if (!warned) {
+			warned = true;
+			log.warn("%s update queue or one of its positions is full, dropping updates%s", name, resync != null ? " and resyncing" : "");
+		}
+		depth -= updates.size();
+		dropped += updates.size();
+		if (resync != null && resyncs.size() < CAPACITY) {
+			resyncs.add(key);
+		}
+	}
+
+	/**
+	 * Applies pending updates until the time budget is used up, at least the updates for one position are always
+	 * applied so the queue can't stall
+	 */
+	public void drain() {
+		if (resync != null) {
+			List<Key> keys;
+			synchronized (this) {
+				keys = resyncs.isEmpty() ? Collections.emptyList() : new ArrayList<>(resyncs);
+				resyncs.clear();
+			}
+			for (Key key : keys) {
+				resync.accept(key.dim, key.pos);
+			}
+		}
+
+		long start = System.nanoTime();
+		long deadline = start + ShadowMCConfig.updateApplyBudget * 1_000_000L;
+		int count = 0;
+		while (true) {
+			List<Runnable> updates;
+			synchronized (this) {
+				Iterator<List<Runnable>> it = pending.values().iterator();
+				if (!it.hasNext()) break;
+				updates = it.next();
+				it.remove();
+				depth -= updates.size();
+			}
+			for (Runnable update : updates) {
+				try {
+					update.run();
+				} catch (RuntimeException e) {
+					log.error("Couldn't apply %s tile entity update", e, name);
+				}
+			}
+			count += updates.size();
+			if (System.nanoTime() >= deadline) break;
+		}
+		if (count > 0) {
+			applied += count;
+			applyTime += System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 * Discards all pending updates, called when the client disconnects or the server stops so they can't be applied
+	 * to the next world
+	 */
+	public synchronized void clear() {
+		pending.clear();
+		resyncs.clear();
+		depth = 0;
+	}
+
+	/**
+	 * @return The number of updates waiting to be applied
+	 */
+	public synchronized int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * @return The number of updates that were replaced by a newer full update before being applied
+	 */
+	public long getCoalesced() {
+		return coalesced;
+	}
+
+	/**
+	 * @return The number of updates dropped because the queue or the position was full
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * @return The number of updates applied
+	 */
+	public long getApplied() {
+		return applied;
+	}
+
+	/**
+	 * @return The total time spent applying updates, in nanoseconds
+	 */
+	public long getApplyTime() {
+		return applyTime;
+	}
+
+	private static class Key {
+
+		private final int dim;
+		private final BlockPos pos;
+
+		private Key(int dim, BlockPos pos) {
+			this.dim = dim;
+			this.pos = pos;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) return false;
+			Key other = (Key)obj;
+			return dim == other.dim && pos.equals(other.pos);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * dim + pos.hashCode();
+		}
+
+	}
+
+}
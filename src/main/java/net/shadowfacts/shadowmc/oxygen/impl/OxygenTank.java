@@ -3,6 +3,8 @@ package net.shadowfacts.shadowmc.oxygen.impl;
 import net.shadowfacts.shadowmc.oxygen.OxygenProvider;
 import net.shadowfacts.shadowmc.oxygen.OxygenReceiver;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Consumer;
 
 /**
@@ -10,7 +12,18 @@ import java.util.function.Consumer;
  */
 public class OxygenTank extends OxygenHandlerImpl implements OxygenProvider, OxygenReceiver {
 
+	/**
+	 * Batched tanks that changed since the last {@link #flushNotifications()}, per thread so the client and the
+	 * integrated server only notify their own tanks
+	 */
+	private static final ThreadLocal<List<OxygenTank>> pending = ThreadLocal.withInitial(ArrayList::new);
+
 	private Consumer<OxygenTank> updateHandler;
+	private boolean batched;
+
+	private boolean queued;
+	private float pendingDelta;
+	private float lastDelta;
 
 	/**
 	 * @param capacity The maximum amount of oxygen that can be stored
@@ -18,8 +31,20 @@ public class OxygenTank extends OxygenHandlerImpl implements OxygenProvider, Oxy
 	 * @param updateHandler A handler that is called whenever a change in the amount of oxygen occurs
 	 */
 	public OxygenTank(float capacity, float transferRate, Consumer<OxygenTank> updateHandler) {
+		this(capacity, transferRate, updateHandler, false);
+	}
+
+	/**
+	 * @param capacity The maximum amount of oxygen that can be stored
+	 * @param transferRate The maximum amount of oxygen that can be transferred in 1 operation
+	 * @param updateHandler A handler that is called whenever a change in the amount of oxygen occurs
+	 * @param batched If {@code true}, the handler is called at most once per tick, at the end of the tick, with all
+	 *                changes since the last call. It isn't called if they cancelled each other out.
+	 */
+	public OxygenTank(float capacity, float transferRate, Consumer<OxygenTank> updateHandler, boolean batched) {
 		super(capacity, transferRate);
 		this.updateHandler = updateHandler;
+		this.batched = batched;
 	}
 
 	@Override
@@ -28,7 +53,7 @@ public class OxygenTank extends OxygenHandlerImpl implements OxygenProvider, Oxy
 
 		if (!simulate) {
 			stored += received;
-			if (updateHandler != null) updateHandler.accept(this);
+			changed(received);
 		}
 
 		return received;
@@ -40,10 +65,52 @@ public class OxygenTank extends OxygenHandlerImpl implements OxygenProvider, Oxy
 
 		if (!simulate) {
 			stored -= extracted;
-			if (updateHandler != null) updateHandler.accept(this);
+			changed(-extracted);
 		}
 
 		return extracted;
 	}
 
+	/**
+	 * @return The net change the handler is currently being called for
+	 */
+	public float getLastDelta() {
+		return lastDelta;
+	}
+
+	private void changed(float delta) {
+		if (updateHandler == null) return;
+		if (!batched) {
+			lastDelta = delta;
+			updateHandler.accept(this);
+			return;
+		}
+		pendingDelta += delta;
+		if (!queued) {
+			queued = true;
+			pending.get().add(this);
+		}
+	}
+
+	/**
+	 * Calls the handlers of the batched tanks that changed on this thread, called at the end of every server and
+	 * client tick. Tanks changed by the handlers are notified in the next flush.
+	 */
+	public static void flushNotifications() {
+		List<OxygenTank> tanks = pending.get();
+		if (tanks.isEmpty()) return;
+
+		OxygenTank[] changed = tanks.toArray(new OxygenTank[tanks.size()]);
+		tanks.clear();
+		for (OxygenTank tank : changed) {
+			tank.queued = false;
+			float delta = tank.pendingDelta;
+			tank.pendingDelta = 0;
+			if (delta != 0) {
+				tank.lastDelta = delta;
+				tank.updateHandler.accept(tank);
+			}
+		}
+	}
+
 }
@@ -0,0 +1,161 @@
+package net.shadowfacts.shadowmc.oxygen.network;
+
+import net.shadowfacts.shadowmc.oxygen.OxygenProvider;
+import net.shadowfacts.shadowmc.oxygen.OxygenReceiver;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A connected component of {@link OxygenNetworkMember}s.
+ *
+ * Every tick the network is active the providers' offers and the receivers' demands, each limited by
+ * {@link net.shadowfacts.shadowmc.oxygen.OxygenHandler#getTransferRate()}, are collected and the oxygen that can be
+ * moved is shared proportionally in one pass. A network that didn't move anything goes idle until it's woken up by
+ * a change, see {@link OxygenNetworkManager}.
+ *
+ * @author shadowfacts
+ */
+public class OxygenNetwork {
+
+	private static final float EPSILON = 1e-4f;
+
+	final Set<OxygenNetworkManager.Node> nodes = new HashSet<>();
+
+	boolean active = true;
+
+	/**
+	 * Rebuilt lazily after the members changed
+	 */
+	private boolean dirty = true;
+	private final List<OxygenProvider> providers = new ArrayList<>();
+	private final List<OxygenReceiver> receivers = new ArrayList<>();
+	/**
+	 * Handlers that are both providers and receivers
+	 */
+	private final List<OxygenProvider> buffers = new ArrayList<>();
+
+	private float[] offers = new float[0];
+	private float[] demands = new float[0];
+	private float[] bufferAmounts = new float[0];
+
+	public int size() {
+		return nodes.size();
+	}
+
+	public boolean isActive() {
+		return active;
+	}
+
+	void markDirty() {
+		dirty = true;
+		active = true;
+	}
+
+	/**
+	 * @return If any oxygen was moved
+	 */
+	boolean tick() {
+		if (dirty) {
+			rebuild();
+		}
+
+		float supply = 0;
+		for (int i = 0; i < providers.size(); i++) {
+			OxygenProvider provider = providers.get(i);
+			supply += offers[i] = provider.extract(provider.getTransferRate(), true);
+		}
+		float demand = 0;
+		for (int i = 0; i < receivers.size(); i++) {
+			OxygenReceiver receiver = receivers.get(i);
+			demand += demands[i] = receiver.receive(receiver.getTransferRate(), true);
+		}
+
+		if (supply < demand) {
+//			buffers make up for what the providers can't supply
+			float bufferSupply = 0;
+			for (int i = 0; i < buffers.size(); i++) {
+				OxygenProvider buffer = buffers.get(i);
+				bufferSupply += bufferAmounts[i] = buffer.extract(buffer.getTransferRate(), true);
+			}
+			float fromBuffers = Math.min(demand - supply, bufferSupply);
+			if (supply + fromBuffers <= EPSILON) return false;
+
+			float extracted = extract(providers, offers, 1);
+			if (fromBuffers > 0) {
+				extracted += extract(buffers, bufferAmounts, fromBuffers / bufferSupply);
+			}
+			fill(extracted / demand);
+		} else {
+//			buffers take what the receivers don't need
+			float bufferDemand = 0;
+			for (int i = 0; i < buffers.size(); i++) {
+				OxygenReceiver buffer = (OxygenReceiver)buffers.get(i);
+				bufferDemand += bufferAmounts[i] = buffer.receive(buffer.getTransferRate(), true);
+			}
+			float toBuffers = Math.min(supply - demand, bufferDemand);
+			if (demand + toBuffers <= EPSILON) return false;
+
+			float extracted = extract(providers, offers, (demand + toBuffers) / supply);
+			float delivered = demand > 0 ? fill(Math.min(1, extracted / demand)) : 0;
+			fillBuffers(extracted - delivered, bufferDemand);
+		}
+		return true;
+	}
+
+	private float extract(List<OxygenProvider> providers, float[] amounts, float ratio) {
+		float extracted = 0;
+		for (int i = 0; i < providers.size(); i++) {
+			if (amounts[i] > 0) {
+				extracted += providers.get(i).extract(amounts[i] * ratio, false);
+			}
+		}
+		return extracted;
+	}
+
+	/**
+	 * @return The amount received
+	 */
+	private float fill(float ratio) {
+		float received = 0;
+		for (int i = 0; i < receivers.size(); i++) {
+			if (demands[i] > 0) {
+				received += receivers.get(i).receive(demands[i] * ratio, false);
+			}
+		}
+		return received;
+	}
+
+	private void fillBuffers(float amount, float bufferDemand) {
+		if (amount <= 0 || bufferDemand <= 0) return;
+		float ratio = Math.min(1, amount / bufferDemand);
+		for (int i = 0; i < buffers.size(); i++) {
+			if (bufferAmounts[i] > 0) {
+				((OxygenReceiver)buffers.get(i)).receive(bufferAmounts[i] * ratio, false);
+			}
+		}
+	}
+
+	private void rebuild() {
+		providers.clear();
+		receivers.clear();
+		buffers.clear();
+		for (OxygenNetworkManager.Node node : nodes) {
+			OxygenProvider provider = node.member.getNetworkProvider();
+			OxygenReceiver receiver = node.member.getNetworkReceiver();
+			if (provider != null && provider == receiver) {
+				buffers.add(provider);
+			} else {
+				if (provider != null) providers.add(provider);
+				if (receiver != null) receivers.add(receiver);
+			}
+		}
+		offers = new float[providers.size()];
+		demands = new float[receivers.size()];
+		bufferAmounts = new float[buffers.size()];
+		dirty = false;
+	}
+
+}
@@ -0,0 +1,240 @@
+package net.shadowfacts.shadowmc.oxygen.network;
+
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Keeps the {@link OxygenNetwork}s of each server world up to date and ticks them.
+ *
+ * Networks are updated incrementally: a new member joins or merges the networks of its neighbors, a removed member
+ * only causes the rest of its own network to be searched if it connected several members, which could now be split.
+ * Only active networks are ticked, idle ones are woken up when their members change, by {@link #wake} and every
+ * {@link #IDLE_RECHECK_INTERVAL} ticks for handlers that change without calling it.
+ *
+ * Only accessed from the server thread.
+ *
+ * @author shadowfacts
+ */
+public class OxygenNetworkManager {
+
+	private static final int IDLE_RECHECK_INTERVAL = 20;
+
+	private static final Map<World, OxygenNetworkManager> managers = new WeakHashMap<>();
+
+	private final Map<BlockPos, Node> nodes = new HashMap<>();
+	private final Set<OxygenNetwork> networks = new LinkedHashSet<>();
+	private int ticks;
+
+	private OxygenNetworkManager() {
+	}
+
+	private static OxygenNetworkManager get(World world) {
+		return managers.computeIfAbsent(world, w -> new OxygenNetworkManager());
+	}
+
+	public static void add(World world, BlockPos pos, OxygenNetworkMember member) {
+		get(world).addNode(pos.toImmutable(), member);
+	}
+
+	public static void remove(World world, BlockPos pos) {
+		OxygenNetworkManager manager = managers.get(world);
+		if (manager != null) {
+			manager.removeNode(pos);
+		}
+	}
+
+	/**
+	 * Reconnects the member at the position, call when the sides it can connect on change
+	 */
+	public static void update(World world, BlockPos pos) {
+		OxygenNetworkManager manager = managers.get(world);
+		Node node = manager != null ? manager.nodes.get(pos) : null;
+		if (node != null) {
+			manager.removeNode(pos);
+			manager.addNode(node.pos, node.member);
+		}
+	}
+
+	/**
+	 * Makes the network of the member at the position active again, call when the member's stored oxygen changes
+	 * outside of the network
+	 */
+	public static void wake(World world, BlockPos pos) {
+		OxygenNetworkManager manager = managers.get(world);
+		Node node = manager != null ? manager.nodes.get(pos) : null;
+		if (node != null) {
+			node.network.active = true;
+		}
+	}
+
+	/**
+	 * @return The network of the member at the position, {@code null} if there's none
+	 */
+	public static OxygenNetwork getNetwork(World world, BlockPos pos) {
+		OxygenNetworkManager manager = managers.get(world);
+		Node node = manager != null ? manager.nodes.get(pos) : null;
+		return node != null ? node.network : null;
+	}
+
+	public static Set<OxygenNetwork> getNetworks(World world) {
+		OxygenNetworkManager manager = managers.get(world);
+		return manager != null ? Collections.unmodifiableSet(manager.networks) : Collections.emptySet();
+	}
+
+	/**
+	 * Called at the end of every world tick
+	 */
+	public static void tick(World world) {
+		OxygenNetworkManager manager = managers.get(world);
+		if (manager != null) {
+			manager.tickNetworks();
+		}
+	}
+
+	public static void unload(World world) {
+		managers.remove(world);
+	}
+
+	private void tickNetworks() {
+		boolean recheck = ++ticks % IDLE_RECHECK_INTERVAL == 0;
+		for (OxygenNetwork network : networks) {
+			if (network.active || recheck) {
+				network.active = network.tick();
+			}
+		}
+	}
+
+	private void addNode(BlockPos pos, OxygenNetworkMember member) {
+		if (nodes.containsKey(pos)) {
+			removeNode(pos);
+		}
+		Node node = new Node(pos, member);
+		nodes.put(pos, node);
+
+		OxygenNetwork network = null;
+		for (EnumFacing side : EnumFacing.VALUES) {
+			Node neighbor = getConnected(node, side);
+			if (neighbor == null || neighbor.network == network) continue;
+			network = network == null ? neighbor.network : merge(network, neighbor.network);
+		}
+		if (network == null) {
+			network = new OxygenNetwork();
+			networks.add(network);
+		}
+		node.network = network;
+		network.nodes.add(node);
+		network.markDirty();
+	}
+
+	private void removeNode(BlockPos pos) {
+		Node node = nodes.remove(pos);
+		if (node == null) return;
+		OxygenNetwork network = node.network;
+		network.nodes.remove(node);
+		if (network.nodes.isEmpty()) {
+			networks.remove(network);
+			return;
+		}
+		network.markDirty();
+
+//		the connections are checked while splitting, so this also works if the member doesn't connect anymore
+		List<Node> neighbors = new ArrayList<>(6);
+		for (EnumFacing side : EnumFacing.VALUES) {
+			Node neighbor = nodes.get(pos.offset(side));
+			if (neighbor != null && neighbor.network == network) {
+				neighbors.add(neighbor);
+			}
+		}
+		if (neighbors.size() > 1) {
+			split(network, neighbors);
+		}
+	}
+
+	/**
+	 * Searches the components reachable from the removed member's neighbors, the first one keeps the network
+	 */
+	private void split(OxygenNetwork network, List<Node> neighbors) {
+		Set<Node> visited = new HashSet<>();
+		for (Node start : neighbors) {
+			if (visited.contains(start)) continue;
+			Set<Node> component = search(start, visited);
+			if (start == neighbors.get(0)) {
+				if (component.size() == network.nodes.size()) return;
+				network.nodes.retainAll(component);
+			} else {
+				OxygenNetwork split = new OxygenNetwork();
+				for (Node node : component) {
+					node.network = split;
+				}
+				split.nodes.addAll(component);
+				networks.add(split);
+			}
+		}
+	}
+
+	private Set<Node> search(Node start, Set<Node> visited) {
+		Set<Node> component = new HashSet<>();
+		Deque<Node> queue = new ArrayDeque<>();
+		queue.add(start);
+		visited.add(start);
+		while (!queue.isEmpty()) {
+			Node node = queue.poll();
+			component.add(node);
+			for (EnumFacing side : EnumFacing.VALUES) {
+				Node neighbor = getConnected(node, side);
+				if (neighbor != null && visited.add(neighbor)) {
+					queue.add(neighbor);
+				}
+			}
+		}
+		return component;
+	}
+
+	private OxygenNetwork merge(OxygenNetwork a, OxygenNetwork b) {
+		if (a.nodes.size() < b.nodes.size()) {
+			OxygenNetwork tmp = a;
+			a = b;
+			b = tmp;
+		}
+		for (Node node : b.nodes) {
+			node.network = a;
+		}
+		a.nodes.addAll(b.nodes);
+		networks.remove(b);
+		a.markDirty();
+		return a;
+	}
+
+	private Node getConnected(Node node, EnumFacing side) {
+		if (!node.member.canConnect(side)) return null;
+		Node neighbor = nodes.get(node.pos.offset(side));
+		return neighbor != null && neighbor.member.canConnect(side.getOpposite()) ? neighbor : null;
+	}
+
+	static class Node {
+
+		final BlockPos pos;
+		final OxygenNetworkMember member;
+		OxygenNetwork network;
+
+		private Node(BlockPos pos, OxygenNetworkMember member) {
+			this.pos = pos;
+			this.member = member;
+		}
+
+	}
+
+}
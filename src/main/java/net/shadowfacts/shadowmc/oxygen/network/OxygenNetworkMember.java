@@ -0,0 +1,42 @@
+package net.shadowfacts.shadowmc.oxygen.network;
+
+import net.minecraft.util.EnumFacing;
+import net.shadowfacts.shadowmc.oxygen.OxygenProvider;
+import net.shadowfacts.shadowmc.oxygen.OxygenReceiver;
+
+import javax.annotation.Nullable;
+
+/**
+ * A tile entity that's part of an {@link OxygenNetwork}, e.g. a pipe, a tank or a machine.
+ *
+ * {@link net.shadowfacts.shadowmc.tileentity.BaseTileEntity}s implementing this join the network of their neighbors
+ * when they're loaded and leave it when they're removed or unloaded.
+ * Handlers that are both a provider and a receiver are used as buffers: they're only filled with what's left over after
+ * all receivers are satisfied, and only drained when the providers can't satisfy the receivers.
+ *
+ * @author shadowfacts
+ */
+public interface OxygenNetworkMember {
+
+	/**
+	 * Both neighbors have to be able to connect to each other. Call {@link OxygenNetworkManager#update} when this
+	 * changes.
+	 * @return If this member connects to the neighboring member on the given side
+	 */
+	boolean canConnect(EnumFacing side);
+
+	/**
+	 * @return The provider the network extracts from, {@code null} if this member doesn't provide oxygen. Has to
+	 * return the same handler every time.
+	 */
+	@Nullable
+	OxygenProvider getNetworkProvider();
+
+	/**
+	 * @return The receiver the network fills, {@code null} if this member doesn't receive oxygen. Has to return the
+	 * same handler every time.
+	 */
+	@Nullable
+	OxygenReceiver getNetworkReceiver();
+
+}
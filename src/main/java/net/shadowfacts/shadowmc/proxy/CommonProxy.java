@@ -8,13 +8,16 @@ import net.minecraft.util.text.ITextComponent;
 import net.minecraft.world.World;
 import net.minecraftforge.fml.common.event.FMLInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLPreInitializationEvent;
-import net.minecraftforge.fml.common.network.NetworkRegistry;
 import net.minecraftforge.fml.relauncher.Side;
 import net.shadowfacts.shadowmc.ShadowMC;
 import net.shadowfacts.shadowmc.flair.FlairManager;
+import net.shadowfacts.shadowmc.network.InstrumentedNetworkWrapper;
+import net.shadowfacts.shadowmc.network.PacketGUIAction;
 import net.shadowfacts.shadowmc.network.PacketRequestTEUpdate;
 import net.shadowfacts.shadowmc.network.PacketSpamlessMessage;
 import net.shadowfacts.shadowmc.network.PacketUpdateTE;
+import net.shadowfacts.shadowmc.network.PacketUpdateTEBatch;
+import net.shadowfacts.shadowmc.network.PacketUpdateTEDelta;
 
 /**
  * @author shadowfacts
@@ -22,7 +25,7 @@ import net.shadowfacts.shadowmc.network.PacketUpdateTE;
 public class CommonProxy {
 
 	public void preInit(FMLPreInitializationEvent event) {
-		ShadowMC.network = NetworkRegistry.INSTANCE.newSimpleChannel(ShadowMC.modId);
+		ShadowMC.network = new InstrumentedNetworkWrapper(ShadowMC.modId);
 		registerPackets();
 	}
 
@@ -35,6 +38,9 @@ public class CommonProxy {
 		ShadowMC.network.registerMessage(PacketUpdateTE.class, PacketUpdateTE.class, 1, Side.CLIENT);
 		ShadowMC.network.registerMessage(PacketUpdateTE.class, PacketUpdateTE.class, 1, Side.SERVER);
 		ShadowMC.network.registerMessage(PacketSpamlessMessage.class, PacketSpamlessMessage.class, 2, Side.CLIENT);
+		ShadowMC.network.registerMessage(PacketUpdateTEDelta.class, PacketUpdateTEDelta.class, 3, Side.CLIENT);
+		ShadowMC.network.registerMessage(PacketUpdateTEBatch.class, PacketUpdateTEBatch.class, 4, Side.CLIENT);
+		ShadowMC.network.registerMessage(PacketGUIAction.class, PacketGUIAction.class, 5, Side.SERVER);
 	}
 
 	public World getClientWorld() {
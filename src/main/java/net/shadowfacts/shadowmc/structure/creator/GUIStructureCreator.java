@@ -41,14 +41,12 @@ public class GUIStructureCreator {
 		UIStackView xStack = new UIStackView("zStack");
 		UILabel xLabel = new UILabel(Integer.toString(te.xSize), "zLabel");
 		UIButtonText xMinus = new UIButtonText("-", (btn, mouseBtn) -> {
-			te.xSize -= KeyboardHelper.isShiftPressed() ? 5 : 1;
-			te.sync();
+			te.resize(0, -(KeyboardHelper.isShiftPressed() ? 5 : 1));
 			xLabel.setText(Integer.toString(te.xSize));
 			return true;
 		}, "zMinus");
 		UIButtonText xPlus = new UIButtonText("+", (btn, mouseBtn) -> {
-			te.xSize += KeyboardHelper.isShiftPressed() ? 5 : 1;
-			te.sync();
+			te.resize(0, KeyboardHelper.isShiftPressed() ? 5 : 1);
 			xLabel.setText(Integer.toString(te.xSize));
 			return true;
 		}, "yPlus");
@@ -63,14 +61,12 @@ public class GUIStructureCreator {
 		UIStackView yStack = new UIStackView("yStack");
 		UILabel yLabel = new UILabel(Integer.toString(te.ySize), "yLabel");
 		UIButtonText yMinus = new UIButtonText("-", (btn, mouseBtn) -> {
-			te.ySize -= KeyboardHelper.isShiftPressed() ? 5 : 1;
-			te.sync();
+			te.resize(1, -(KeyboardHelper.isShiftPressed() ? 5 : 1));
 			yLabel.setText(Integer.toString(te.ySize));
 			return true;
 		}, "yMinus");
 		UIButtonText yPlus = new UIButtonText("+", (btn, mouseBtn) -> {
-			te.ySize += KeyboardHelper.isShiftPressed() ? 5 : 1;
-			te.sync();
+			te.resize(1, KeyboardHelper.isShiftPressed() ? 5 : 1);
 			yLabel.setText(Integer.toString(te.ySize));
 			return true;
 		}, "yPlus");
@@ -85,14 +81,12 @@ public class GUIStructureCreator {
 		UIStackView zStack = new UIStackView("zStack");
 		UILabel zLabel = new UILabel(Integer.toString(te.zSize), "zLabel");
 		UIButtonText zMinus = new UIButtonText("-", (btn, mouseBtn) -> {
-			te.zSize -= KeyboardHelper.isShiftPressed() ? 5 : 1;
-			te.sync();
+			te.resize(2, -(KeyboardHelper.isShiftPressed() ? 5 : 1));
 			zLabel.setText(Integer.toString(te.zSize));
 			return true;
 		}, "zMinus");
 		UIButtonText zPlus = new UIButtonText("+", (btn, mouseBtn) -> {
-			te.zSize += KeyboardHelper.isShiftPressed() ? 5 : 1;
-			te.sync();
+			te.resize(2, KeyboardHelper.isShiftPressed() ? 5 : 1);
 			zLabel.setText(Integer.toString(te.zSize));
 			return true;
 		}, "zPlus");
@@ -1,13 +1,14 @@
 package net.shadowfacts.shadowmc.structure.creator;
 
 import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.util.EnumFacing;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.text.TextComponentString;
 import net.shadowfacts.shadowlib.util.DesktopUtils;
 import net.shadowfacts.shadowmc.ShadowMC;
 import net.shadowfacts.shadowmc.nbt.AutoSerializeNBT;
-import net.shadowfacts.shadowmc.network.PacketRequestTEUpdate;
+import net.shadowfacts.shadowmc.network.GUIActions;
 import net.shadowfacts.shadowmc.structure.Structure;
 import net.shadowfacts.shadowmc.structure.StructureManager;
 import net.shadowfacts.shadowmc.tileentity.BaseTileEntity;
@@ -19,20 +20,16 @@ public class TileEntityStructureCreator extends BaseTileEntity {
 
 	private static final int SIZE_ID = 796513;
 
-	@AutoSerializeNBT
+	private static final int ACTION_RESIZE = 0;
+	private static final int MAX_RESIZE = 5;
+
+	@AutoSerializeNBT(sync = true)
 	int xSize = 3;
-	@AutoSerializeNBT
+	@AutoSerializeNBT(sync = true)
 	int ySize = 3;
-	@AutoSerializeNBT
+	@AutoSerializeNBT(sync = true)
 	int zSize = 3;
 
-	@Override
-	public void onLoad() {
-		if (worldObj.isRemote) {
-			ShadowMC.network.sendToServer(new PacketRequestTEUpdate(this));
-		}
-	}
-
 	void handleActivated(EntityPlayer player, EnumFacing side) {
 		if (player.isSneaking()) {
 			player.openGui(ShadowMC.instance, 0, player.worldObj, pos.getX(), pos.getY(), pos.getZ());
@@ -48,6 +45,44 @@ public class TileEntityStructureCreator extends BaseTileEntity {
 		}
 	}
 
+	public static void registerGUIActions() {
+		GUIActions.register(TileEntityStructureCreator.class, ACTION_RESIZE, TileEntityStructureCreator::handleResize);
+	}
+
+	/**
+	 * Client: Changes the size right away so the GUI is up to date and sends the change to the server
+	 * @param axis 0, 1 or 2 for X, Y or Z
+	 */
+	void resize(int axis, int delta) {
+		applyResize(axis, delta);
+		if (worldObj.isRemote) {
+			GUIActions.send(this, ACTION_RESIZE, axis, delta);
+		}
+	}
+
+	private void handleResize(EntityPlayerMP player, int[] args) {
+		if (args.length == 2 && Math.abs(args[1]) <= MAX_RESIZE && applyResize(args[0], args[1])) {
+			markDirty();
+			sync();
+		}
+	}
+
+	private boolean applyResize(int axis, int delta) {
+		switch (axis) {
+			case 0:
+				xSize += delta;
+				return true;
+			case 1:
+				ySize += delta;
+				return true;
+			case 2:
+				zSize += delta;
+				return true;
+			default:
+				return false;
+		}
+	}
+
 	AxisAlignedBB getBox() {
 		return new AxisAlignedBB(pos.getX() + 1, pos.getY(), pos.getZ() + 1, pos.getX() + 1 + xSize, pos.getY() + ySize, pos.getZ() + 1 + zSize);
 	}
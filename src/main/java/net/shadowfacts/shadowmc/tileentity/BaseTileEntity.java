@@ -1,20 +1,104 @@
 package net.shadowfacts.shadowmc.tileentity;
 
+import io.netty.buffer.ByteBuf;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.nbt.NBTBase;
 import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTTagString;
+import net.minecraft.network.NetworkManager;
+import net.minecraft.network.play.server.SPacketUpdateTileEntity;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
 import net.minecraftforge.common.capabilities.Capability;
-import net.minecraftforge.fml.common.network.NetworkRegistry;
+import net.minecraftforge.fml.common.network.ByteBufUtils;
 import net.shadowfacts.shadowmc.ShadowMC;
+import net.shadowfacts.shadowmc.ShadowMCConfig;
 import net.shadowfacts.shadowmc.capability.CapHelper;
 import net.shadowfacts.shadowmc.nbt.AutoNBTSerializer;
+import net.shadowfacts.shadowmc.nbt.NBTStreamReader;
+import net.shadowfacts.shadowmc.nbt.NBTStreamWriter;
+import net.shadowfacts.shadowmc.network.PacketRequestTEUpdate;
 import net.shadowfacts.shadowmc.network.PacketUpdateTE;
+import net.shadowfacts.shadowmc.network.PacketUpdateTEDelta;
+import net.shadowfacts.shadowmc.network.TEUpdateBatcher;
+import net.shadowfacts.shadowmc.oxygen.network.OxygenNetworkManager;
+import net.shadowfacts.shadowmc.oxygen.network.OxygenNetworkMember;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * @author shadowfacts
  */
 public abstract class BaseTileEntity extends TileEntity {
 
+	/**
+	 * Server: The auto-serialized fields as they were last sent to clients
+	 */
+	private NBTTagCompound lastSynced;
+	/**
+	 * Server: The sequence number of the last sync sent
+	 * Client: The sequence number of the last sync applied, -1 if unknown
+	 */
+	private int syncSeq = -1;
+	private boolean awaitingFullSync;
+	/**
+	 * Server: The {@link TESyncScheduler} tick this TE was last synced in, -1 if never
+	 */
+	long lastSyncTick = -1;
+	/**
+	 * Server: If any sync since the last one sent was marked as significant
+	 */
+	private boolean significantPending;
+	/**
+	 * Server: What each player was last sent, only used with {@link #getSyncTiers()}
+	 */
+	Map<EntityPlayerMP, TieredSync.PlayerState> playerSyncStates;
+	/**
+	 * Created the first time a neighbor is requested
+	 */
+	private NeighborCache neighbors;
+
+	/**
+	 * {@link #writeToNBT(NBTTagCompound)} and {@link #readFromNBT(NBTTagCompound)} by their MCP and SRG names, since
+	 * outside of the development environment the methods only exist under the latter
+	 */
+	private static final String[] NBT_METHODS = {"writeToNBT", "func_189515_b", "readFromNBT", "func_145839_a"};
+
+	/**
+	 * Classes that don't override {@link #writeToNBT(NBTTagCompound)} or {@link #readFromNBT(NBTTagCompound)} only
+	 * consist of the vanilla data and their auto-serialized fields, so they can be streamed
+	 */
+	private static final ClassValue<Boolean> streamable = new ClassValue<Boolean>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			if (countDeclared(BaseTileEntity.class) != 2) {
+//				the names are out of date, so overrides can't be detected
+				ShadowMC.log.warn("Couldn't find the NBT methods of BaseTileEntity, not streaming {}", type.getName());
+				return false;
+			}
+			for (Class<?> c = type; c != BaseTileEntity.class; c = c.getSuperclass()) {
+				if (countDeclared(c) > 0) return false;
+			}
+			return true;
+		}
+
+		private int countDeclared(Class<?> type) {
+			int count = 0;
+			for (String name : NBT_METHODS) {
+				try {
+					type.getDeclaredMethod(name, NBTTagCompound.class);
+					count++;
+				} catch (NoSuchMethodException ignored) {
+				}
+			}
+			return count;
+		}
+	};
+
 	@Override
 	public NBTTagCompound writeToNBT(NBTTagCompound tag) {
 		super.writeToNBT(tag);
@@ -28,11 +112,322 @@ public abstract class BaseTileEntity extends TileEntity {
 		AutoNBTSerializer.deserialize(getClass(), this, tag);
 	}
 
+	/**
+	 * Writes the same bytes as {@link ByteBufUtils#writeTag} would for {@link #writeToNBT(NBTTagCompound)}, but directly
+	 * from the fields if possible instead of building the tag first
+	 */
+	public void writeToStream(ByteBuf buf) {
+		if (!streamable.get(getClass())) {
+			ByteBufUtils.writeTag(buf, writeToNBT(new NBTTagCompound()));
+			return;
+		}
+		NBTStreamWriter out = new NBTStreamWriter(buf);
+		out.beginCompound();
+		out.writeEntries(super.writeToNBT(new NBTTagCompound()));
+		AutoNBTSerializer.serialize(getClass(), this, out);
+		out.endCompound();
+	}
+
+	/**
+	 * Reads a tag written by {@link #writeToStream(ByteBuf)} or {@link ByteBufUtils#writeTag}, directly into the fields
+	 * if possible
+	 */
+	public void readFromStream(ByteBuf buf) {
+		if (!streamable.get(getClass())) {
+			readFromNBT(ByteBufUtils.readTag(buf));
+			return;
+		}
+		NBTStreamReader in = new NBTStreamReader(buf);
+		if (!in.beginCompound()) return;
+		NBTTagCompound rest = new NBTTagCompound();
+		AutoNBTSerializer.deserialize(getClass(), this, in, rest);
+		super.readFromNBT(rest);
+	}
+
+	/**
+	 * Opt-in delta syncing.
+	 * When enabled, server-side syncs only send the {@link net.shadowfacts.shadowmc.nbt.AutoSerializeNBT} fields that
+	 * changed since the previous sync. Anything written manually in {@link #writeToNBT(NBTTagCompound)} is only sent
+	 * with full updates, which clients request automatically when they miss a delta.
+	 * @return If this TE should use delta syncing
+	 */
+	protected boolean useDeltaSync() {
+		return false;
+	}
+
+	/**
+	 * Server: Limits how often this TE is synced, a TE that's marked more often is synced once the interval has passed.
+	 * The {@code syncIntervals} config option takes precedence over this.
+	 * @return The minimum number of ticks between two syncs of this TE
+	 */
+	protected int getMinSyncInterval() {
+		return ShadowMCConfig.minSyncInterval;
+	}
+
+	/**
+	 * Server: Syncs are only sent to players watching the chunk of this TE, a radius further limits them to the
+	 * watchers within that many blocks.
+	 * @return The radius in blocks, negative to send to all players watching the chunk
+	 */
+	public int getSyncRadius() {
+		return -1;
+	}
+
+	/**
+	 * Server: Distance based syncing, players are sent full updates according to the first tier they're within and
+	 * players without a tier aren't sent anything. Players that miss updates are brought up to date as soon as their
+	 * tier allows it, e.g. when they come closer.
+	 * Tiers replace {@link #getSyncRadius()} and {@link #useDeltaSync()}, so all updates are full updates.
+	 * Should return the same array every time.
+	 * @return The tiers ordered by distance, {@code null} to sync all players on every change
+	 */
+	protected SyncTier[] getSyncTiers() {
+		return null;
+	}
+
+	/**
+	 * Server: Marks this TE to be synced to clients at the end of the tick, calling this multiple times per tick only
+	 * results in a single sync.
+	 * Client: Sends this TE to the server immediately. GUIs should use {@link net.shadowfacts.shadowmc.network.GUIActions}
+	 * instead, which only send what changed and let the server validate it.
+	 */
 	public void sync() {
+		sync(false);
+	}
+
+	/**
+	 * @param significant If the change should also be sent to players in {@link SyncTier#significant()} tiers
+	 * @see #sync()
+	 */
+	public void sync(boolean significant) {
 		if (getWorld().isRemote) {
 			ShadowMC.network.sendToServer(new PacketUpdateTE(this));
 		} else {
-			ShadowMC.network.sendToAllAround(new PacketUpdateTE(this), new NetworkRegistry.TargetPoint(worldObj.provider.getDimension(), pos.getX(), pos.getY(), pos.getZ(), 64));
+			significantPending |= significant;
+			TESyncScheduler.mark(this);
+		}
+	}
+
+	void sendSync() {
+		boolean significant = significantPending;
+		significantPending = false;
+		SyncTier[] tiers = getSyncTiers();
+		if (tiers != null) {
+			if (TieredSync.sync(this, tiers, significant, lastSyncTick)) {
+				TESyncScheduler.catchUp(this);
+			}
+		} else if (useDeltaSync()) {
+			syncDelta();
+		} else {
+			TEUpdateBatcher.sendToWatchers(new PacketUpdateTE(this), this);
+		}
+	}
+
+	private void syncDelta() {
+		NBTTagCompound current = AutoNBTSerializer.serialize(getClass(), this);
+
+		if (lastSynced == null) {
+			syncSeq = 0;
+			lastSynced = current;
+			TEUpdateBatcher.sendToWatchers(new PacketUpdateTE(this), this);
+			return;
+		}
+
+		NBTTagCompound changed = new NBTTagCompound();
+		for (String key : current.getKeySet()) {
+			NBTBase value = current.getTag(key);
+			if (!value.equals(lastSynced.getTag(key))) {
+				changed.setTag(key, value);
+			}
+		}
+		NBTTagList removed = new NBTTagList();
+		for (String key : lastSynced.getKeySet()) {
+			if (!current.hasKey(key)) {
+				removed.appendTag(new NBTTagString(key));
+			}
+		}
+
+		if (changed.hasNoTags() && removed.hasNoTags()) return;
+
+		syncSeq++;
+		lastSynced = current;
+		TEUpdateBatcher.sendToWatchers(new PacketUpdateTEDelta(this, syncSeq, changed, removed), this);
+	}
+
+	/**
+	 * Server: Creates a full update, with delta syncing any pending changes are sent first so the update matches the
+	 * sequence number it carries
+	 */
+	public PacketUpdateTE createFullUpdate() {
+		if (useDeltaSync() && lastSynced != null) {
+			syncDelta();
+		}
+		return new PacketUpdateTE(this);
+	}
+
+	/**
+	 * @return The sequence number of the last delta sync, -1 if delta syncing isn't used
+	 */
+	public int getSyncSeq() {
+		return useDeltaSync() ? syncSeq : -1;
+	}
+
+	/**
+	 * Client: Applies a full update
+	 */
+	public void handleUpdate(NBTTagCompound tag, int seq) {
+		readFromNBT(tag);
+		syncSeq = seq;
+		awaitingFullSync = false;
+	}
+
+	/**
+	 * Client: Applies a full update written by {@link #writeToStream(ByteBuf)}
+	 */
+	public void handleUpdate(ByteBuf data, int seq) {
+		readFromStream(data);
+		syncSeq = seq;
+		awaitingFullSync = false;
+	}
+
+	/**
+	 * Client: Requests the full state from the server, deltas are ignored until it arrives
+	 */
+	public void requestFullUpdate() {
+		if (!awaitingFullSync) {
+			awaitingFullSync = true;
+			ShadowMC.network.sendToServer(new PacketRequestTEUpdate(this));
+		}
+	}
+
+	/**
+	 * Client: Applies a delta update, or requests a full update if a previous delta was missed
+	 */
+	public void handleDelta(int seq, NBTTagCompound changed, NBTTagList removed) {
+		if (awaitingFullSync || syncSeq < 0 || seq != syncSeq + 1) {
+			requestFullUpdate();
+			return;
+		}
+
+		Set<String> keys = new HashSet<>(changed.getKeySet());
+		for (int i = 0; i < removed.tagCount(); i++) {
+			keys.add(removed.getStringTagAt(i));
+		}
+		AutoNBTSerializer.deserialize(getClass(), this, changed, keys);
+		syncSeq = seq;
+	}
+
+	/**
+	 * Only contains the {@link net.shadowfacts.shadowmc.nbt.AutoSerializeNBT#sync()} fields, so clients receive the
+	 * state they need along with the chunk instead of having to request it
+	 */
+	@Override
+	public NBTTagCompound getUpdateTag() {
+		return AutoNBTSerializer.serializeSynced(getClass(), this, super.getUpdateTag());
+	}
+
+	@Override
+	public void handleUpdateTag(NBTTagCompound tag) {
+		AutoNBTSerializer.deserializeSynced(getClass(), this, tag);
+	}
+
+	/**
+	 * Sent by vanilla when the block is updated and the chunk is resent
+	 */
+	@Override
+	public SPacketUpdateTileEntity getUpdatePacket() {
+		NBTTagCompound tag = AutoNBTSerializer.serializeSynced(getClass(), this, new NBTTagCompound());
+		return tag.hasNoTags() ? null : new SPacketUpdateTileEntity(pos, 0, tag);
+	}
+
+	@Override
+	public void onDataPacket(NetworkManager net, SPacketUpdateTileEntity pkt) {
+		handleUpdateTag(pkt.getNbtCompound());
+	}
+
+	/**
+	 * The TE next to this one, cached until it changes or unloads. {@code null} if there's none or it isn't loaded.
+	 */
+	protected TileEntity getNeighbor(EnumFacing side) {
+		if (neighbors == null) {
+			neighbors = new NeighborCache(this);
+		}
+		return neighbors.getTileEntity(side);
+	}
+
+	/**
+	 * The capability of the TE next to this one for the side facing this TE, cached until the neighbor changes or
+	 * unloads so it can be used every tick.
+	 * Neighbors that change which capabilities they expose without a block update should have their neighbors call
+	 * {@link #invalidateNeighborCache()}.
+	 * @return The capability or {@code null} if there's no neighbor or it doesn't have it
+	 */
+	protected <T> T getNeighborCapability(EnumFacing side, Capability<T> capability) {
+		if (neighbors == null) {
+			neighbors = new NeighborCache(this);
+		}
+		return neighbors.getCapability(side, capability);
+	}
+
+	public void invalidateNeighborCache() {
+		if (neighbors != null) {
+			neighbors.invalidate();
+		}
+	}
+
+	/**
+	 * Called by {@link net.shadowfacts.shadowmc.block.BlockTE} when a neighboring block changes
+	 */
+	public void onNeighborChanged() {
+		invalidateNeighborCache();
+	}
+
+	/**
+	 * Called by {@link net.shadowfacts.shadowmc.block.BlockTE} when the TE at {@code neighbor} is created, removed or
+	 * changed, Forge also calls this for every {@link TileEntity#markDirty()} of horizontal neighbors
+	 */
+	public void onNeighborTileChanged(BlockPos neighbor) {
+		if (neighbors != null) {
+			neighbors.onNeighborTileChanged(neighbor);
+		}
+	}
+
+	/**
+	 * Joins the oxygen network of its neighbors if this is an {@link OxygenNetworkMember}
+	 */
+	@Override
+	public void onLoad() {
+		super.onLoad();
+		if (this instanceof OxygenNetworkMember && !worldObj.isRemote) {
+			OxygenNetworkManager.add(worldObj, pos, (OxygenNetworkMember)this);
+		}
+	}
+
+	@Override
+	public void invalidate() {
+		super.invalidate();
+		invalidateNeighborCache();
+		leaveOxygenNetwork();
+		unschedule();
+	}
+
+	@Override
+	public void onChunkUnload() {
+		super.onChunkUnload();
+		invalidateNeighborCache();
+		leaveOxygenNetwork();
+		unschedule();
+	}
+
+	private void unschedule() {
+		if (worldObj != null && !worldObj.isRemote) {
+			TESyncScheduler.remove(this);
+		}
+	}
+
+	private void leaveOxygenNetwork() {
+		if (this instanceof OxygenNetworkMember && worldObj != null && !worldObj.isRemote) {
+			OxygenNetworkManager.remove(worldObj, pos);
 		}
 	}
 
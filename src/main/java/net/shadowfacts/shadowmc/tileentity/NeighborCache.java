@@ -0,0 +1,108 @@
+package net.shadowfacts.shadowmc.tileentity;
+
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraftforge.common.capabilities.Capability;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The neighboring TEs of a {@link BaseTileEntity} and the capabilities requested from them.
+ *
+ * A side is looked up once and then reused until it's invalidated by a block update, or until the neighbor is
+ * invalidated or its chunk unloads, which is checked on every access since neither causes a block update.
+ *
+ * @author shadowfacts
+ */
+class NeighborCache {
+
+	private static final int SIDES = EnumFacing.values().length;
+
+	/**
+	 * Stands in for capabilities the neighbor doesn't have, {@code null} means not looked up yet
+	 */
+	private static final Object NONE = new Object();
+
+	private final BaseTileEntity owner;
+
+	private final TileEntity[] tiles = new TileEntity[SIDES];
+	private final Chunk[] chunks = new Chunk[SIDES];
+	private final Map<Capability<?>, Object[]> caps = new IdentityHashMap<>();
+
+	NeighborCache(BaseTileEntity owner) {
+		this.owner = owner;
+	}
+
+	@SuppressWarnings("unchecked")
+	<T> T getCapability(EnumFacing side, Capability<T> capability) {
+		TileEntity te = getTileEntity(side);
+		if (te == null) return null;
+
+		Object[] values = caps.get(capability);
+		if (values == null) {
+			values = new Object[SIDES];
+			caps.put(capability, values);
+		}
+		int i = side.ordinal();
+		Object value = values[i];
+		if (value == null) {
+			EnumFacing facing = side.getOpposite();
+			value = te.hasCapability(capability, facing) ? te.getCapability(capability, facing) : null;
+			values[i] = value == null ? NONE : value;
+		}
+		return value == NONE ? null : (T)value;
+	}
+
+	TileEntity getTileEntity(EnumFacing side) {
+		int i = side.ordinal();
+		Chunk chunk = chunks[i];
+		if (chunk != null && chunk.isLoaded() && (tiles[i] == null || !tiles[i].isInvalid())) {
+			return tiles[i];
+		}
+
+		invalidate(side);
+		World world = owner.getWorld();
+		BlockPos pos = owner.getPos().offset(side);
+//		not cached, so the side is looked up again once the chunk is loaded
+		if (!world.isBlockLoaded(pos)) return null;
+		chunks[i] = world.getChunkFromBlockCoords(pos);
+		tiles[i] = world.getTileEntity(pos);
+		return tiles[i];
+	}
+
+	/**
+	 * Invalidates the side if the TE at {@code neighbor} isn't the cached one anymore
+	 */
+	void onNeighborTileChanged(BlockPos neighbor) {
+		for (EnumFacing side : EnumFacing.VALUES) {
+			if (owner.getPos().offset(side).equals(neighbor)) {
+				if (chunks[side.ordinal()] != null && owner.getWorld().getTileEntity(neighbor) != tiles[side.ordinal()]) {
+					invalidate(side);
+				}
+				return;
+			}
+		}
+	}
+
+	void invalidate(EnumFacing side) {
+		int i = side.ordinal();
+		tiles[i] = null;
+		chunks[i] = null;
+		for (Object[] values : caps.values()) {
+			values[i] = null;
+		}
+	}
+
+	void invalidate() {
+		for (int i = 0; i < SIDES; i++) {
+			tiles[i] = null;
+			chunks[i] = null;
+		}
+		caps.clear();
+	}
+
+}
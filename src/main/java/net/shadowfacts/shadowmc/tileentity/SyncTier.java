@@ -0,0 +1,51 @@
+package net.shadowfacts.shadowmc.tileentity;
+
+/**
+ * A distance band for {@link BaseTileEntity#getSyncTiers()}, players get updates according to the first tier they're
+ * within.
+ *
+ * <pre>
+ * private static final SyncTier[] TIERS = {
+ *     SyncTier.within(16, 1), // every change
+ *     SyncTier.within(48, 20), // at most once per second
+ *     SyncTier.significant() // only on sync(true)
+ * };
+ * </pre>
+ *
+ * @author shadowfacts
+ */
+public class SyncTier {
+
+	final double maxDistanceSq;
+	final int interval;
+	final boolean significantOnly;
+
+	private SyncTier(double maxDistance, int interval, boolean significantOnly) {
+		this.maxDistanceSq = maxDistance * maxDistance;
+		this.interval = interval;
+		this.significantOnly = significantOnly;
+	}
+
+	/**
+	 * @param distance The maximum distance in blocks
+	 * @param interval The minimum number of ticks between two updates to the same player
+	 */
+	public static SyncTier within(double distance, int interval) {
+		return new SyncTier(distance, interval, false);
+	}
+
+	/**
+	 * Players within {@code distance} only get updates for syncs marked as significant
+	 */
+	public static SyncTier significantWithin(double distance) {
+		return new SyncTier(distance, 0, true);
+	}
+
+	/**
+	 * All remaining players watching the chunk only get updates for syncs marked as significant
+	 */
+	public static SyncTier significant() {
+		return significantWithin(Double.POSITIVE_INFINITY);
+	}
+
+}
@@ -0,0 +1,142 @@
+package net.shadowfacts.shadowmc.tileentity;
+
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.chunk.Chunk;
+import net.shadowfacts.shadowmc.ShadowMC;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects the {@link BaseTileEntity}s marked with {@link BaseTileEntity#sync()} and syncs each of them at most once at
+ * the end of the server tick.
+ *
+ * A TE isn't synced again until its minimum interval has passed since its last sync, it just stays marked until then.
+ * The interval is {@link BaseTileEntity#getMinSyncInterval()}, unless the config has an entry for the TE class.
+ * TEs with {@link SyncTier}s are also checked regularly until all players have been sent their latest state.
+ *
+ * Only accessed from the server thread.
+ *
+ * @author shadowfacts
+ */
+public class TESyncScheduler {
+
+	/**
+	 * How often TEs with out of date players are checked again
+	 */
+	private static final int CATCH_UP_INTERVAL = 10;
+
+	private static final Set<BaseTileEntity> marked = new LinkedHashSet<>();
+	/**
+	 * TEs using {@link SyncTier}s that still have players that are out of date
+	 */
+	private static final Set<BaseTileEntity> catchingUp = new LinkedHashSet<>();
+
+	private static Map<String, Integer> intervals = Collections.emptyMap();
+
+	private static long tick;
+
+	static void mark(BaseTileEntity te) {
+		marked.add(te);
+	}
+
+	static void catchUp(BaseTileEntity te) {
+		catchingUp.add(te);
+	}
+
+	/**
+	 * Forgets {@code te}, called when it's invalidated or its chunk unloads so the sets don't keep it alive
+	 */
+	static void remove(BaseTileEntity te) {
+		marked.remove(te);
+		catchingUp.remove(te);
+	}
+
+	/**
+	 * Called when a chunk is sent to {@code player}. The chunk only carries the update tags, so the player is sent a
+	 * full update of every TE with {@link SyncTier}s in it with the next catch-up.
+	 */
+	public static void onChunkWatched(EntityPlayerMP player, ChunkPos pos) {
+		Chunk chunk = player.getServerWorld().getChunkProvider().getLoadedChunk(pos.chunkXPos, pos.chunkZPos);
+		if (chunk == null) return;
+		for (TileEntity te : chunk.getTileEntityMap().values()) {
+			if (te instanceof BaseTileEntity && !te.isInvalid() && ((BaseTileEntity)te).getSyncTiers() != null) {
+				TieredSync.forget((BaseTileEntity)te, player);
+				catchUp((BaseTileEntity)te);
+			}
+		}
+	}
+
+	/**
+	 * Forgets all TEs, called when the server stops
+	 */
+	public static void clear() {
+		marked.clear();
+		catchingUp.clear();
+	}
+
+	/**
+	 * Syncs the marked TEs that are due, called at the end of every server tick
+	 */
+	public static void flush() {
+		tick++;
+		if (tick % CATCH_UP_INTERVAL == 0 && !catchingUp.isEmpty()) {
+			updateCatchingUp();
+		}
+		if (marked.isEmpty()) return;
+
+		Iterator<BaseTileEntity> it = marked.iterator();
+		while (it.hasNext()) {
+			BaseTileEntity te = it.next();
+			if (te.isInvalid() || te.getWorld() == null) {
+				it.remove();
+				continue;
+			}
+			if (te.lastSyncTick >= 0 && tick - te.lastSyncTick < getMinInterval(te)) continue;
+
+			it.remove();
+			te.lastSyncTick = tick;
+			te.sendSync();
+		}
+	}
+
+	private static void updateCatchingUp() {
+		Iterator<BaseTileEntity> it = catchingUp.iterator();
+		while (it.hasNext()) {
+			BaseTileEntity te = it.next();
+			SyncTier[] tiers = te.getSyncTiers();
+			if (te.isInvalid() || te.getWorld() == null || tiers == null || !TieredSync.update(te, tiers, tick)) {
+				it.remove();
+			}
+		}
+	}
+
+	private static int getMinInterval(BaseTileEntity te) {
+		Integer configured = intervals.get(te.getClass().getName());
+		return configured != null ? configured : te.getMinSyncInterval();
+	}
+
+	/**
+	 * Loads the per-class intervals from the config, entries are {@code fully.qualified.ClassName=ticks}
+	 */
+	public static void loadIntervals(String[] entries) {
+		Map<String, Integer> map = new HashMap<>();
+		for (String entry : entries) {
+			int index = entry.indexOf('=');
+			try {
+				if (index < 0) throw new NumberFormatException();
+				map.put(entry.substring(0, index).trim(), Integer.parseInt(entry.substring(index + 1).trim()));
+			} catch (NumberFormatException e) {
+				ShadowMC.log.warn("Ignoring invalid sync interval '{}', expected ClassName=ticks", entry);
+			}
+		}
+		intervals = map;
+	}
+
+}
@@ -0,0 +1,108 @@
+package net.shadowfacts.shadowmc.tileentity;
+
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.shadowfacts.shadowmc.network.PacketUpdateTE;
+import net.shadowfacts.shadowmc.network.TEUpdateBatcher;
+
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Per-player syncing for {@link BaseTileEntity}s with {@link SyncTier}s.
+ *
+ * Every sync marks all players watching the TE as out of date, each of them is sent a full update as soon as their
+ * current tier allows it. Players that are left out of date are checked again by {@link TESyncScheduler} until they're
+ * up to date, so they're caught up when they come closer.
+ * Players without a state, i.e. that just started watching the chunk, only have the chunk's update tag and are sent a
+ * full update right away regardless of their tier.
+ *
+ * @author shadowfacts
+ */
+class TieredSync {
+
+	/**
+	 * @return If any player is still out of date
+	 */
+	static boolean sync(BaseTileEntity te, SyncTier[] tiers, boolean significant, long tick) {
+		List<EntityPlayerMP> watchers = TEUpdateBatcher.getWatchers(te);
+		if (te.playerSyncStates != null) {
+			for (EntityPlayerMP player : watchers) {
+				PlayerState state = te.playerSyncStates.get(player);
+				if (state != null) {
+					state.changed = true;
+					state.significant |= significant;
+				}
+			}
+		}
+		return update(te, tiers, watchers, tick);
+	}
+
+	/**
+	 * @return If any player is still out of date
+	 */
+	static boolean update(BaseTileEntity te, SyncTier[] tiers, long tick) {
+		return update(te, tiers, TEUpdateBatcher.getWatchers(te), tick);
+	}
+
+	private static boolean update(BaseTileEntity te, SyncTier[] tiers, List<EntityPlayerMP> watchers, long tick) {
+		Map<EntityPlayerMP, PlayerState> states = te.playerSyncStates;
+		if (states == null) {
+			states = te.playerSyncStates = new WeakHashMap<>();
+		}
+
+		double x = te.getPos().getX() + 0.5;
+		double y = te.getPos().getY() + 0.5;
+		double z = te.getPos().getZ() + 0.5;
+		PacketUpdateTE packet = null;
+		boolean outOfDate = false;
+
+		for (EntityPlayerMP player : watchers) {
+			PlayerState state = states.get(player);
+			if (state == null) {
+				state = new PlayerState();
+				states.put(player, state);
+			} else {
+				if (!state.changed) continue;
+
+				SyncTier tier = getTier(tiers, player.getDistanceSq(x, y, z));
+				if (tier == null || (tier.significantOnly && !state.significant) || tick - state.lastSent < tier.interval) {
+					outOfDate = true;
+					continue;
+				}
+			}
+
+			if (packet == null) {
+				packet = new PacketUpdateTE(te);
+			}
+			TEUpdateBatcher.sendTo(packet, player);
+			state.changed = false;
+			state.significant = false;
+			state.lastSent = tick;
+		}
+		return outOfDate;
+	}
+
+	/**
+	 * Forgets what {@code player} was sent, so the next sync or catch-up sends them a full update
+	 */
+	static void forget(BaseTileEntity te, EntityPlayerMP player) {
+		if (te.playerSyncStates != null) {
+			te.playerSyncStates.remove(player);
+		}
+	}
+
+	private static SyncTier getTier(SyncTier[] tiers, double distanceSq) {
+		for (SyncTier tier : tiers) {
+			if (distanceSq <= tier.maxDistanceSq) return tier;
+		}
+		return null;
+	}
+
+	static class PlayerState {
+		private long lastSent = Long.MIN_VALUE / 2;
+		private boolean changed;
+		private boolean significant;
+	}
+
+}
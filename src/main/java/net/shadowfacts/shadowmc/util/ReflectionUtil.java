@@ -221,6 +221,25 @@ public class ReflectionUtil {
 		return null;
 	}
 
+	/**
+	 * Instantiates the class generated at compile time for the given class, e.g. {@code Foo_NBTCodec} for {@code Foo}
+	 * Nested classes are flattened, {@code Outer.Inner} becomes {@code Outer_Inner_NBTCodec}
+	 * @param clazz The class the companion was generated for
+	 * @param suffix The suffix of the generated class
+	 * @return The companion instance, {@code null} if none was generated
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T instantiateCompanion(Class<?> clazz, String suffix) {
+		try {
+			Class<?> companion = Class.forName(clazz.getName().replace('$', '_') + suffix, true, clazz.getClassLoader());
+			return (T)companion.newInstance();
+		} catch (ClassNotFoundException e) {
+			return null;
+		} catch (ReflectiveOperationException | LinkageError e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
 
 	/**
 	 * Internal class used for combining field owner/name into 1 thing
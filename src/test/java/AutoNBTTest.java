@@ -1,7 +1,14 @@
 import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
 import net.shadowfacts.shadowmc.nbt.AutoNBTSerializer;
 import net.shadowfacts.shadowmc.nbt.AutoSerializeNBT;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
 /**
  * @author shadowfacts
  */
@@ -11,9 +18,13 @@ public class AutoNBTTest {
 	private float f;
 	private boolean b;
 	private String s;
+	private List<BlockPos> positions = new ArrayList<>();
+	private EnumSet<EnumFacing> sides = EnumSet.noneOf(EnumFacing.class);
 
 	public static void main(String[] args) {
 		AutoNBTTest test = new AutoNBTTest(3.14159f, false, "Hello");
+		test.positions.addAll(Arrays.asList(new BlockPos(1, 2, 3), new BlockPos(-40, 64, 1000)));
+		test.sides.add(EnumFacing.NORTH);
 
 		NBTTagCompound tag = AutoNBTSerializer.serialize(AutoNBTTest.class, test);
 
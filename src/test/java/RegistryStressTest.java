@@ -0,0 +1,109 @@
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.EnumFacing;
+import net.minecraftforge.common.capabilities.Capability;
+import net.shadowfacts.mirror.Mirror;
+import net.shadowfacts.shadowmc.capability.CapHelper;
+import net.shadowfacts.shadowmc.capability.CapHolder;
+import net.shadowfacts.shadowmc.nbt.AutoNBTSerializer;
+import net.shadowfacts.shadowmc.nbt.AutoSerializeNBT;
+import net.shadowfacts.shadowmc.network.PacketBase;
+
+import java.lang.reflect.Constructor;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads the AutoNBT, packet handler and capability registries from many threads while other threads keep registering,
+ * any missing entry or exception is counted as a failure.
+ *
+ * @author shadowfacts
+ */
+public class RegistryStressTest {
+
+	private static final int THREADS = 16;
+	private static final int ITERATIONS = 50_000;
+
+	private static final AtomicInteger failures = new AtomicInteger();
+
+	public static void main(String[] args) throws Exception {
+		Capability<?> capability = createCapability(Runnable.class.getName());
+		CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[THREADS];
+
+		for (int t = 0; t < THREADS; t++) {
+			boolean writer = t % 4 == 0;
+			threads[t] = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int i = 0; i < ITERATIONS; i++) {
+					try {
+						if (writer) {
+							AutoNBTSerializer.registerSerializer(Marker.class, (tag, name, val) -> tag.setBoolean(name, true), (tag, name) -> new Marker());
+							PacketBase.addHandlers(Marker.class, buf -> new Marker(), (val, buf) -> {});
+						}
+						check(capability, i);
+					} catch (Throwable e) {
+						e.printStackTrace();
+						failures.incrementAndGet();
+					}
+				}
+			});
+			threads[t].start();
+		}
+
+		long begin = System.nanoTime();
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		System.out.println(String.format("%d threads, %,d iterations each, %d ms, %d failures", THREADS, ITERATIONS, (System.nanoTime() - begin) / 1_000_000, failures.get()));
+		if (failures.get() > 0) {
+			throw new AssertionError(failures.get() + " failures");
+		}
+	}
+
+	private static void check(Capability<?> capability, int energy) {
+		Machine machine = new Machine();
+		machine.energy = energy;
+		NBTTagCompound tag = AutoNBTSerializer.serialize(Machine.class, machine);
+		Machine copy = new Machine();
+		AutoNBTSerializer.deserialize(Machine.class, copy, tag);
+		if (copy.energy != machine.energy || !copy.name.equals(machine.name)) {
+			failures.incrementAndGet();
+		}
+
+		if (PacketBase.getHandlers(Mirror.of(int.class)) == null || PacketBase.getHandlers(Mirror.of(String.class)) == null) {
+			failures.incrementAndGet();
+		}
+
+		if (!CapHelper.hasCapability(capability, EnumFacing.NORTH, Machine.class, machine) ||
+				CapHelper.hasCapability(capability, EnumFacing.UP, Machine.class, machine) ||
+				CapHelper.getCapability(capability, EnumFacing.NORTH, Machine.class, machine, (cap, side) -> null) != machine.handler) {
+			failures.incrementAndGet();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Capability<?> createCapability(String name) throws ReflectiveOperationException {
+		Constructor<?> constructor = Capability.class.getDeclaredConstructors()[0];
+		constructor.setAccessible(true);
+		return (Capability<?>)constructor.newInstance(name, null, null);
+	}
+
+	private static class Marker {
+	}
+
+	private static class Machine {
+		@AutoSerializeNBT
+		private int energy;
+		@AutoSerializeNBT
+		private String name = "machine";
+		@CapHolder(capabilities = Runnable.class, sides = EnumFacing.NORTH)
+		private Runnable handler = () -> {};
+	}
+
+}